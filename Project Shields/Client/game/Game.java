@@ -1,14 +1,20 @@
 package game;
 
-import game.entities.Entity;
+import game.entities.Bullet;
+import game.entities.Explode;
+import game.entities.Landmine;
 import game.entities.Player;
 import game.entities.PlayerMP;
 import game.gfx.Chat;
 import game.gfx.Colors;
+import game.gfx.Display;
 import game.gfx.Font;
 import game.gfx.Screen;
 import game.gfx.Sprites;
 import game.level.Level;
+import game.level.LevelGenerator;
+import game.level.LevelMetadata;
+import game.level.LevelRegistry;
 import game.net.GameClient;
 import game.net.GameServer;
 import game.net.packets.Packet00Login;
@@ -28,14 +34,13 @@ import game.utils.TypeSystem;
 import java.awt.BorderLayout;
 import java.awt.Canvas;
 import java.awt.Dimension;
-import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JFrame;
 
@@ -130,11 +135,14 @@ public class Game extends Canvas implements Runnable {
 	 * A list of both human readable map names and their paths within the
 	 * program. Human readable lines are on MAPS[0] and all map names are on
 	 * MAPS[1]. There must be the same amount of readable names as map
-	 * locations.
+	 * locations. Locations starting with {@link LevelGenerator#PREFIX} are
+	 * made by the {@link LevelGenerator} with a new seed every game. Levels
+	 * found by the {@link LevelRegistry} of a host are added after these.
 	 */
 	public static final String[][] MAPS = new String[][] {
-		{ "lobby", "fort", "pshield" }, // HUMAN
-		{ "/levels/lobby.png", "/levels/fort.png", "/levels/pshield.png" } };// SYSTEM
+		{ "lobby", "fort", "pshield", "arena" }, // HUMAN
+		{ "/levels/lobby.lvl", "/levels/fort.lvl", "/levels/pshield.lvl",
+				"gen:*:96:96" } };// SYSTEM
 
 	/**
 	 * Array of song <i>locations</i> that can be played. The first song to be
@@ -188,19 +196,11 @@ public class Game extends Canvas implements Runnable {
 	 */
 	public int where = 0;
 	private int onClip = (int) (Math.random() * songs.length);
-	/**
-	 * The {@link BufferedImage} that is rendered to the JFrame.
-	 */
-	private static BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
-			BufferedImage.TYPE_INT_RGB);
 
 	/**
-	 * An array of ints that is used to draw the picture on the JFrame.
+	 * Puts the {@link Screen} on the JFrame.
 	 */
-	private final int[] pixels = ((DataBufferInt) image.getRaster()
-			.getDataBuffer()).getData();
-	private final int[] colors = new int[6 * 6 * 6]; // ALL colors
-
+	private Display display;
 	private Screen screen;
 	public InputHandler input;
 	public WindowHandler windowHandler;
@@ -297,6 +297,14 @@ public class Game extends Canvas implements Runnable {
 	 */
 	private int selectedMode = -1, selectedMap = -1;
 
+	/**
+	 * Levels found on disk by the host, and {@link Game#MAPS} with them
+	 * added. Turned on by hosting, see {@link LevelRegistry}.
+	 */
+	private LevelRegistry levels;
+	private String[][] maps = MAPS;
+	private int mapsVersion = -1;
+
 	/**
 	 * Prevents the menu from proceeding to an unwanted option.
 	 */
@@ -353,21 +361,7 @@ public class Game extends Canvas implements Runnable {
 	 */
 	public void init() {
 		game = this;
-		int index = 0;
-
-		// indexes every single color in the game.
-		for (int r = 0; r < 6; r++) {
-			for (int g = 0; g < 6; g++) {
-				for (int b = 0; b < 6; b++) {
-					final int rr = ((r * 255) / 5);
-					final int gg = ((g * 255) / 5);
-					final int bb = ((b * 255) / 5);
-
-					// Format 770011 or something like that.
-					colors[index++] = (rr << 16) | (gg << 8) | bb;
-				}
-			}
-		}
+		display = new Display(this, WIDTH, HEIGHT);
 		input = new InputHandler(this, 1); // sets up keyboard control.
 		levelGui = new Level(this, null); // Used for the GUI.
 
@@ -422,7 +416,11 @@ public class Game extends Canvas implements Runnable {
 				final int entities = level.getEntities().size();
 				frame.setTitle(NAME + " - " + ticks + " ticks, " + frames
 						+ " frames, " + entities
-						+ ((entities == 1) ? " entity." : " entities."));
+						+ ((entities == 1) ? " entity, " : " entities, ")
+						+ String.format("%.2f", display.getPresentTime())
+						+ " ms present.");
+				Debug.out(Type.TRACE, CLASS, Bullet.POOL + ", " + Explode.POOL
+						+ ", " + Landmine.POOL);
 				frames = 0;
 				ticks = 0;
 			}
@@ -497,18 +495,7 @@ public class Game extends Canvas implements Runnable {
 			break;
 		}
 
-		for (int y = 0; y < screen.height; y++) {
-			for (int x = 0; x < screen.width; x++) {
-				final int colorCode = screen.pixels[x + (y * screen.width)];
-				if (colorCode < 255) {
-					pixels[x + (y * WIDTH)] = colors[colorCode];
-				}
-			}
-		}
-		final Graphics g = bs.getDrawGraphics();
-		g.drawImage(image, 0, 0, getWidth(), getHeight(), null);
-		g.dispose();
-		bs.show();
+		display.present(screen, bs, false);
 	}
 
 	/**
@@ -518,6 +505,10 @@ public class Game extends Canvas implements Runnable {
 	public void tick() {
 		chat.tick();
 
+		if ((levels != null) && (levels.getVersion() != mapsVersion)) {
+			updateMaps();
+		}
+
 		if (mp3player.isIdle()) {
 			mp3player.changeMusic(songs[onClip]);
 			mp3player.play();
@@ -560,20 +551,14 @@ public class Game extends Canvas implements Runnable {
 				final Packet05Damage resetHealth = new Packet05Damage(
 						player.getUsername(), -20);
 				resetHealth.writeData(socketClient);
-				if (team.equals("RED")) {
-					final Packet02Move moveToSpawn = new Packet02Move(username,
-							(level.width * 32) - 100,
-							(level.height * 32) - 100, false, 0, false);
-					moveToSpawn.writeData(socketClient);
-					player.x = (level.width * 32) - 100;
-					player.y = (level.height * 32) - 100;
-				} else {
-					final Packet02Move moveToSpawn = new Packet02Move(username,
-							100, 100, false, 0, false);
-					moveToSpawn.writeData(socketClient);
-					player.x = 100;
-					player.y = 100;
-				}
+				final LevelMetadata places = level.getMetadata();
+				final int spawn = places.pickSpawn(team);
+				final Packet02Move moveToSpawn = new Packet02Move(username,
+						places.getSpawnX(team, spawn), places.getSpawnY(team,
+								spawn), false, 0, false);
+				moveToSpawn.writeData(socketClient);
+				player.x = moveToSpawn.getX();
+				player.y = moveToSpawn.getY();
 				respawnTimer = 1010;
 				player.setFlag(false);
 			}
@@ -582,6 +567,9 @@ public class Game extends Canvas implements Runnable {
 		tickMenu();
 		tickCamera();
 		level.tick(); // does some level specific game logic.
+		if (socketServer != null) {
+			socketServer.sendTileDeltas(level.takeTileDeltas());
+		}
 	}
 
 	/**
@@ -648,25 +636,7 @@ public class Game extends Canvas implements Runnable {
 			break;
 		}
 
-		for (int y = 0; y < screen.height; y++) {
-			for (int x = 0; x < screen.width; x++) {
-				final int colorCode = screen.pixels[x + (y * screen.width)];
-				if (colorCode < 255) {
-					pixels[x + (y * WIDTH)] = colors[colorCode];
-				}
-			}
-		}
-		final Graphics g = bs.getDrawGraphics();
-		if (player.getDamageHit() > 0) {
-			g.drawImage(image, (int) ((Math.random() * 20) - 10),
-					(int) ((Math.random() * 20) - 10), getWidth(), getHeight(),
-					null);
-		} else {
-			g.drawImage(image, 0, 0, getWidth(), getHeight(), null);
-
-		}
-		g.dispose();
-		bs.show();
+		display.present(screen, bs, player.getDamageHit() > 0);
 	}
 
 	/**
@@ -795,6 +765,7 @@ public class Game extends Canvas implements Runnable {
 							"Starting server...");
 					socketServer = new GameServer(this);
 					socketServer.start();
+					startLevelRegistry();
 					createUsername(typedFields[0]);
 					socketClient = new GameClient(this, "127.0.0.1");
 					socketClient.start();
@@ -802,7 +773,7 @@ public class Game extends Canvas implements Runnable {
 							username, -1, version); // Will request the teams
 					// from the server.
 					packet.writeData(socketClient);
-					level.regenLevel("/levels/lobby.png");
+					level.regenLevel("/levels/lobby.lvl");
 					at = MenuAt.TEAM;
 				} else if (typedFields.length == 2) {// CODE FOR JOINING A GAME
 					menu = new Menu(new String[] { "Abort!" }, false,
@@ -890,19 +861,19 @@ public class Game extends Canvas implements Runnable {
 			}
 			loginPacket.writeData(socketClient);
 			while(level.getPath() == null) {
+				// The level is not ticked yet, so put the level from the
+				// server in place here.
+				level.applyCommands();
 				try {
 					Thread.sleep(100);
 				} catch (final Exception e) {
 					e.printStackTrace();
 				}
 			}
-			if(team.equals("GREEN")) {
-				tempX = 100;
-				tempY = 100;
-			} else {
-				tempX = (level.width * 32) - 100;
-				tempY = (level.height * 32) - 100;
-			}
+			final LevelMetadata places = level.getMetadata();
+			final int spawn = places.pickSpawn(team);
+			tempX = places.getSpawnX(team, spawn);
+			tempY = places.getSpawnY(team, spawn);
 			
 			final Packet02Move moveToSpawn = new Packet02Move(username,
 					tempX, tempY, false, 0, false);
@@ -1039,16 +1010,7 @@ public class Game extends Canvas implements Runnable {
 	 * Collects and removes garbage from the game.
 	 */
 	private synchronized void garbageCollect() {
-		int i = 0;
-		for (final Entity e : level.getEntities()) {
-			if (e.isMarkedForDelete()) {
-				break;
-			}
-			i++;
-		}
-		if (i < level.getEntities().size()) {
-			level.getEntities().remove(i);
-		}
+		level.sweep();
 	}
 
 	/**
@@ -1100,7 +1062,7 @@ public class Game extends Canvas implements Runnable {
 	 * @return {@link String} map.
 	 */
 	public String getMap() {
-		return MAPS[0][selectedMap];
+		return maps[0][selectedMap];
 	}
 
 	/**
@@ -1110,7 +1072,37 @@ public class Game extends Canvas implements Runnable {
 	 * @return {@link String} system map.
 	 */
 	public String getSystemMap() {
-		return MAPS[1][selectedMap];
+		return maps[1][selectedMap];
+	}
+
+	/**
+	 * Finds the levels in the folder set by <code>-Dtanks.levels</code> (or
+	 * {@link LevelRegistry#DIRECTORY}) and watches it for changes.
+	 */
+	private void startLevelRegistry() {
+		levels = new LevelRegistry(new File(System.getProperty("tanks.levels",
+				LevelRegistry.DIRECTORY)), level);
+		if (levels.scan()) {
+			levels.start();
+		}
+	}
+
+	/**
+	 * Helper method that adds the levels of the {@link LevelRegistry} to the
+	 * maps the host can pick.
+	 */
+	private void updateMaps() {
+		mapsVersion = levels.getVersion();
+		final List<LevelRegistry.Entry> found = levels.getLevels();
+		final String[][] merged = new String[2][MAPS[0].length + found.size()];
+		System.arraycopy(MAPS[0], 0, merged[0], 0, MAPS[0].length);
+		System.arraycopy(MAPS[1], 0, merged[1], 0, MAPS[1].length);
+		for (int i = 0; i < found.size(); i++) {
+			merged[0][MAPS[0].length + i] = found.get(i).name;
+			merged[1][MAPS[1].length + i] = found.get(i).path;
+		}
+		maps = merged;
+		mapsMenu.setOptions(merged[0]);
 	}
 
 	/**
@@ -5,6 +5,8 @@ import game.gfx.Screen;
 import game.level.Level;
 import game.net.packets.Packet05Damage;
 
+import java.util.List;
+
 /**
  * A bullet is an {@link Entity} that extends {@link Mob}. It is fired from
  * player's tanks and damages players that are on the opposite team.
@@ -13,6 +15,23 @@ import game.net.packets.Packet05Damage;
  */
 public class Bullet extends Mob {
 
+	/**
+	 * Pixels a {@link Bullet} travels every tick. Any speed works, as the
+	 * whole path is checked for walls and players.
+	 */
+	public static final int SPEED = 6;
+
+	/**
+	 * Width and height of the hit box of a bullet, minus one.
+	 */
+	public static final int SIZE = 4;
+
+	/**
+	 * Bullets that are not in a level anymore.
+	 */
+	public static final EntityPool<Bullet> POOL = new EntityPool<>("Bullet",
+			256);
+
 	private int direction = 0;
 	private boolean immune;
 
@@ -34,11 +53,45 @@ public class Bullet extends Mob {
 	 */
 	public Bullet(Level level, int id, int x, int y, int direction,
 			boolean immune) {
-		super(level, id, "Bullet", x, y, 6);
+		super(level, id, "Bullet", x, y, SPEED);
+		boxX1 = SIZE;
+		boxY1 = SIZE;
+		reinit(x, y, direction, immune);
+	}
+
+	/**
+	 * Gets a bullet from the {@link Bullet#POOL}, or makes a new one if it is
+	 * empty. Takes the same arguments as
+	 * {@link Bullet#Bullet(Level, int, int, int, int, boolean)}.
+	 *
+	 * @return A bullet ready to be added to the level.
+	 */
+	public static Bullet obtain(Level level, int id, int x, int y,
+			int direction, boolean immune) {
+		final Bullet bullet = POOL.obtain();
+		if (bullet == null) {
+			return new Bullet(level, id, x, y, direction, immune);
+		}
+		bullet.reset(level, id);
+		bullet.reinit(x, y, direction, immune);
+		return bullet;
+	}
+
+	/**
+	 * Helper method that sets up everything a bullet does not share with the
+	 * last one.
+	 */
+	private void reinit(int x, int y, int direction, boolean immune) {
 		this.x = x;
 		this.y = y - 4;
 		this.direction = direction;
 		this.immune = immune;
+		isMoving = false;
+	}
+
+	@Override
+	public void recycle() {
+		POOL.release(this);
 	}
 
 	@Override
@@ -57,6 +110,8 @@ public class Bullet extends Mob {
 		if (direction == 3) {
 			xa++;
 		}
+		final int startX = x;
+		final int startY = y;
 		if ((xa != 0) || (ya != 0)) {
 			move(xa, ya);
 			isMoving = true;
@@ -64,73 +119,133 @@ public class Bullet extends Mob {
 			isMoving = false;
 		}
 
-		for (int i = 0; i < level.getEntities().size(); i++) {
-			final Entity e = level.getEntities().get(i);
+		if (isImmune()) {
+			return;
+		}
+		// Players the bullet came within 47 pixels up and left or 15 down and
+		// right of anywhere along the path it just took.
+		final List<Entity> near = getEntitiesIn(Math.min(startX, x) - 46,
+				Math.min(startY, y) - 46, Math.max(startX, x) + 15,
+				Math.max(startY, y) + 15);
+		for (int i = 0; i < near.size(); i++) {
+			final Entity e = near.get(i);
 			if (e instanceof Player) {
 				final Player p = (Player) e;
 				if (p.isLocal() && !isImmune()) {
-					if ((x >= (p.x - 15)) && (x < (p.x + 47))
-							&& (y >= (p.y - 15)) && (y < (p.y + 47))) {
-						final Packet05Damage packet = new Packet05Damage(
-								p.getUsername(), 4);
-						packet.writeData(level.getGame().socketClient);
-						markAsImmune();
+					if (crosses(startX, startY, x, y, p.x - 15, p.y - 15,
+							p.x + 46, p.y + 46)) {
+						hit(p);
 					}
 				}
 			}
 		}
 	}
 
+	@Override
+	public int getLayer() {
+		return LAYER_GROUND;
+	}
+
 	@Override
 	public void render(Screen screen) {
 		screen.render(x - 16, y - 16, 15, Colors.get(-1, 000, 333, 555));
 		super.debugRender(screen);
 	}
 
+	/**
+	 * Moves the bullet along its whole path at once. If a wall is in the way,
+	 * the bullet stops right in front of it and is marked for delete.
+	 */
 	@Override
-	public boolean hasCollided(int xa, int ya) {
-		final int xMin = 0;
-		final int xMax = 4;
-		final int yMin = 0;
-		final int yMax = 4;
-		for (int x = xMin; x < xMax; x++) {
-			if (isSolidTile(xa, ya, x, yMin)) {
-				markForDelete = true;
-				return true;
-			}
-		}
-		for (int x = xMin; x < xMax; x++) {
-			if (isSolidTile(xa, ya, x, yMax)) {
-				markForDelete = true;
-				return true;
-			}
-		}
-		for (int y = yMin; y < yMax; y++) {
-			if (isSolidTile(xa, ya, xMin, y)) {
-				markForDelete = true;
-				return true;
-			}
-		}
-		for (int y = yMin; y < yMax; y++) {
-			if (isSolidTile(xa, ya, xMax, y)) {
-				markForDelete = true;
-				return true;
-			}
+	public void move(int xa, int ya) {
+		final int dx = xa * speed;
+		final int dy = ya * speed;
+		final double clear = level.sweepBox(x + boxX0, y + boxY0, x + boxX1, y
+				+ boxY1, dx, dy);
+		if (clear < 1) {
+			markForDelete = true;
 		}
-		return false;
+		x += travelled(dx, clear);
+		y += travelled(dy, clear);
+		level.moved(this);
 	}
 
-	@Override
-	public void move(int xa, int ya) {
-		if ((xa != 0) && (ya != 0)) {
-			move(xa, 0);
-			move(0, ya);
-			return;
+	/**
+	 * Gets how many whole pixels of a distance were travelled, without
+	 * rounding errors cutting off a pixel.
+	 *
+	 * @param distance
+	 *            Distance in pixels.
+	 * @param part
+	 *            Part of the distance that was travelled, from
+	 *            {@link Level#sweepBox(int, int, int, int, int, int)}.
+	 * @return Pixels travelled.
+	 */
+	public static int travelled(int distance, double part) {
+		return (int) ((distance * part) + (Math.signum(distance) * 1e-6));
+	}
+
+	/**
+	 * Damages a player this bullet ran into. The bullet can not hurt the
+	 * player again after.
+	 *
+	 * @param p
+	 *            The {@link Player} that was hit.
+	 */
+	public void hit(Player p) {
+		final Packet05Damage packet = new Packet05Damage(p.getUsername(), 4);
+		packet.writeData(level.getGame().socketClient);
+		markAsImmune();
+	}
+
+	/**
+	 * Checks if a straight path passes through a rectangle.
+	 *
+	 * @param x0
+	 *            Start X of the path.
+	 * @param y0
+	 *            Start Y of the path.
+	 * @param x1
+	 *            End X of the path.
+	 * @param y1
+	 *            End Y of the path.
+	 * @param left
+	 *            Left edge of the rectangle.
+	 * @param top
+	 *            Top edge of the rectangle.
+	 * @param right
+	 *            Right edge of the rectangle (inclusive).
+	 * @param bottom
+	 *            Bottom edge of the rectangle (inclusive).
+	 * @return <code>True</code> if any point of the path is in the rectangle.
+	 */
+	public static boolean crosses(int x0, int y0, int x1, int y1, int left,
+			int top, int right, int bottom) {
+		double enter = 0;
+		double exit = 1;
+		final int dx = x1 - x0;
+		if (dx == 0) {
+			if ((x0 < left) || (x0 > right)) {
+				return false;
+			}
+		} else {
+			final double a = (left - x0) / (double) dx;
+			final double b = (right - x0) / (double) dx;
+			enter = Math.max(enter, Math.min(a, b));
+			exit = Math.min(exit, Math.max(a, b));
 		}
-		if (!hasCollided(xa, ya)) {
-			x += xa * speed;
-			y += ya * speed;
+		final int dy = y1 - y0;
+		if (dy == 0) {
+			if ((y0 < top) || (y0 > bottom)) {
+				return false;
+			}
+		} else {
+			final double a = (top - y0) / (double) dy;
+			final double b = (bottom - y0) / (double) dy;
+			enter = Math.max(enter, Math.min(a, b));
+			exit = Math.min(exit, Math.max(a, b));
 		}
+		return enter <= exit;
 	}
 
 	/**
@@ -149,4 +264,13 @@ public class Bullet extends Mob {
 	public boolean isImmune() {
 		return immune;
 	}
+
+	/**
+	 * Gets the direction the bullet is flying in.
+	 *
+	 * @return Direction. See {@link Mob#movingDir}.
+	 */
+	public int getDirection() {
+		return direction;
+	}
 }
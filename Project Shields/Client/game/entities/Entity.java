@@ -1,6 +1,8 @@
 package game.entities;
 
 import game.gfx.Screen;
+import game.level.EntityGrid;
+import game.level.EntityStore;
 import game.level.Level;
 import game.level.tiles.Tile;
 import game.utils.Debug;
@@ -41,11 +43,47 @@ public abstract class Entity {
 	 */
 	protected boolean markForDelete = false;
 
+	/**
+	 * Cell of the {@link EntityGrid} this {@link Entity} is filed under, or
+	 * {@link EntityGrid#NO_CELL} if it is not in one. Only the {@link Level}
+	 * should change this.
+	 */
+	private int gridX = EntityGrid.NO_CELL, gridY = EntityGrid.NO_CELL;
+
+	/**
+	 * Order the {@link Entity} is drawn in. Lower is drawn first. Only the
+	 * {@link Level} should change this.
+	 */
+	private long renderOrder;
+
+	/**
+	 * Slot of the {@link EntityStore} this {@link Entity} is kept in. Only the
+	 * {@link EntityStore} should change this.
+	 */
+	private int slot = EntityStore.NO_SLOT;
+
 	/**
 	 * Name of the class.
 	 */
 	public static final String CLASS = "Entity";
 
+	/**
+	 * Render layers. Entities in a lower layer are always drawn under entities
+	 * in a higher one.
+	 * <p>
+	 * <b>LAYER_GROUND</b> - Things on the floor, like mines, flags and
+	 * bullets.
+	 * </p>
+	 * <p>
+	 * <b>LAYER_MOB</b> - Tanks.
+	 * </p>
+	 * <p>
+	 * <b>LAYER_EFFECT</b> - Explosions and other effects drawn over
+	 * everything.
+	 * </p>
+	 */
+	public static final int LAYER_GROUND = 0, LAYER_MOB = 1, LAYER_EFFECT = 2;
+
 	/**
 	 * Creates a new {@link Entity}.
 	 *
@@ -72,6 +110,29 @@ public abstract class Entity {
 		this.level = level;
 	}
 
+	/**
+	 * Gets an {@link Entity} taken out of a level ready to be used again, as
+	 * if it was just made.
+	 *
+	 * @param level
+	 *            {@link Level} to put the entity in.
+	 * @param id
+	 *            New ID of the entity.
+	 */
+	protected void reset(Level level, int id) {
+		this.id = id;
+		markForDelete = false;
+		init(level);
+	}
+
+	/**
+	 * Called by the {@link Level} once the {@link Entity} has been taken out
+	 * of it for good. Entities that are kept in an {@link EntityPool} give
+	 * themselves back here.
+	 */
+	public void recycle() {
+	}
+
 	/**
 	 * Updates an {@link Entity}.
 	 */
@@ -102,6 +163,97 @@ public abstract class Entity {
 		markForDelete = true;
 	}
 
+	/**
+	 * Checks if the {@link Entity} may be skipped when it is not near the
+	 * camera. Entities that draw to a fixed spot on the screen (like the
+	 * health bar of the local {@link Player}) should return
+	 * <code>false</code>.
+	 *
+	 * @return <code>true</code> if the {@link Entity} can be culled.
+	 */
+	public boolean isCullable() {
+		return true;
+	}
+
+	/**
+	 * Gets the render layer of this {@link Entity}.
+	 *
+	 * @return {@link Entity#LAYER_GROUND}, {@link Entity#LAYER_MOB} or
+	 *         {@link Entity#LAYER_EFFECT}.
+	 */
+	public int getLayer() {
+		return LAYER_MOB;
+	}
+
+	/**
+	 * Gets the slot of the {@link EntityStore} this {@link Entity} is in.
+	 *
+	 * @return Slot, or {@link EntityStore#NO_SLOT}.
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Sets the slot of the {@link EntityStore} this {@link Entity} is in.
+	 *
+	 * @param slot
+	 *            Slot.
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
+	/**
+	 * Gets the X of the grid cell this {@link Entity} is filed under.
+	 *
+	 * @return X cell.
+	 */
+	public int getGridX() {
+		return gridX;
+	}
+
+	/**
+	 * Gets the Y of the grid cell this {@link Entity} is filed under.
+	 *
+	 * @return Y cell.
+	 */
+	public int getGridY() {
+		return gridY;
+	}
+
+	/**
+	 * Sets the grid cell this {@link Entity} is filed under.
+	 *
+	 * @param gridX
+	 *            X cell.
+	 * @param gridY
+	 *            Y cell.
+	 */
+	public void setGridCell(int gridX, int gridY) {
+		this.gridX = gridX;
+		this.gridY = gridY;
+	}
+
+	/**
+	 * Gets the order this {@link Entity} is drawn in within its layer.
+	 *
+	 * @return Render order. Lower is drawn first.
+	 */
+	public long getRenderOrder() {
+		return renderOrder;
+	}
+
+	/**
+	 * Sets the order this {@link Entity} is drawn in.
+	 *
+	 * @param renderOrder
+	 *            Render order. Lower is drawn first.
+	 */
+	public void setRenderOrder(long renderOrder) {
+		this.renderOrder = renderOrder;
+	}
+
 	/**
 	 * Gets the ID of an entity.
 	 *
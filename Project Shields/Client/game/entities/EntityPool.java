@@ -0,0 +1,118 @@
+package game.entities;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link EntityPool} keeps entities of one type that were taken out of the
+ * {@link game.level.Level}, so they can be used again instead of making new
+ * ones. The pool only holds a limited amount; anything given back past that is
+ * left for the garbage collector. Entities may be taken and given back from
+ * any thread.
+ *
+ * @author AJ Walter
+ * @param <T>
+ *            Type of {@link Entity} in the pool.
+ */
+public class EntityPool<T extends Entity> {
+
+	/**
+	 * Name of the pool, for the stats.
+	 */
+	private final String name;
+
+	/**
+	 * Most amount of entities kept.
+	 */
+	private final int capacity;
+
+	private final Queue<T> free = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Times an {@link Entity} was (hits) or was not (misses) in the pool when
+	 * one was asked for.
+	 */
+	private final AtomicLong hits = new AtomicLong(),
+			misses = new AtomicLong();
+
+	/**
+	 * Creates an empty pool.
+	 *
+	 * @param name
+	 *            Name of the pool.
+	 * @param capacity
+	 *            Most amount of entities kept.
+	 */
+	public EntityPool(String name, int capacity) {
+		this.name = name;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Takes an {@link Entity} out of the pool. It must be set up again before
+	 * it is used.
+	 *
+	 * @return An unused {@link Entity}, or <code>null</code> if the pool is
+	 *         empty.
+	 */
+	public T obtain() {
+		final T e = free.poll();
+		if (e == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		size.decrementAndGet();
+		hits.incrementAndGet();
+		return e;
+	}
+
+	/**
+	 * Gives an {@link Entity} back to the pool. It must not be in a level.
+	 *
+	 * @param e
+	 *            {@link Entity} that is not used anymore.
+	 */
+	public void release(T e) {
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			return;
+		}
+		free.add(e);
+	}
+
+	/**
+	 * Gets how many times an {@link Entity} was reused.
+	 *
+	 * @return Hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets how many times a new {@link Entity} had to be made.
+	 *
+	 * @return Misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets how many entities are waiting in the pool.
+	 *
+	 * @return Amount of free entities.
+	 */
+	public int getFree() {
+		return size.get();
+	}
+
+	@Override
+	public String toString() {
+		return name + " pool: " + getHits() + " hits, " + getMisses()
+				+ " misses, " + getFree() + "/" + capacity + " free";
+	}
+}
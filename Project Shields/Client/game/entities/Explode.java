@@ -20,6 +20,12 @@ public class Explode extends Mob {
 	 */
 	public static final int TICKS_UNTIL_CHANGE = 3;
 
+	/**
+	 * Explosions that are not in a level anymore.
+	 */
+	public static final EntityPool<Explode> POOL = new EntityPool<>(
+			"Explode", 128);
+
 	/**
 	 * The frame number that the {@link Explode} object is on.
 	 */
@@ -41,8 +47,39 @@ public class Explode extends Mob {
 	 */
 	public Explode(Level level, int id, int x, int y) {
 		super(level, id, "Explode", x, y, 0);
+		reinit(x, y);
+	}
+
+	/**
+	 * Gets an explosion from the {@link Explode#POOL}, or makes a new one if
+	 * it is empty. Takes the same arguments as
+	 * {@link Explode#Explode(Level, int, int, int)}.
+	 *
+	 * @return An explosion ready to be added to the level.
+	 */
+	public static Explode obtain(Level level, int id, int x, int y) {
+		final Explode explode = POOL.obtain();
+		if (explode == null) {
+			return new Explode(level, id, x, y);
+		}
+		explode.reset(level, id);
+		explode.reinit(x, y);
+		return explode;
+	}
+
+	/**
+	 * Helper method that starts the animation over at a new spot.
+	 */
+	private void reinit(int x, int y) {
 		this.x = x;
 		this.y = y - 4;
+		onFrame = 0;
+		ticksUntilChange = 0;
+	}
+
+	@Override
+	public void recycle() {
+		POOL.release(this);
 	}
 
 	@Override
@@ -62,6 +99,11 @@ public class Explode extends Mob {
 		}
 	}
 
+	@Override
+	public int getLayer() {
+		return LAYER_EFFECT;
+	}
+
 	@Override
 	public void render(Screen screen) {
 		final int xTile = 8;
@@ -7,6 +7,8 @@ import game.net.packets.Packet02Move;
 import game.net.packets.Packet04Chat;
 import game.net.packets.Packet13Score;
 
+import java.util.List;
+
 /**
  * A {@link FlagBase} is used in the game mode Capture The Flag. It contains the
  * colored flag for a team. The flag may be taken from the base and added to the
@@ -60,8 +62,9 @@ public class FlagBase extends Mob {
 
 	@Override
 	public void tick() {
-		for (int i = 0; i < level.getEntities().size(); i++) {
-			final Entity e = level.getEntities().get(i);
+		final List<Entity> near = getEntitiesIn(x - 30, y - 30, x + 31, y + 31);
+		for (int i = 0; i < near.size(); i++) {
+			final Entity e = near.get(i);
 			if (e instanceof Player) {
 				final Player p = (Player) e;
 				if (p.isLocal()) {
@@ -138,6 +141,11 @@ public class FlagBase extends Mob {
 		}
 	}
 
+	@Override
+	public int getLayer() {
+		return LAYER_GROUND;
+	}
+
 	@Override
 	public void render(Screen screen) {
 		if (flagIsPresent) {
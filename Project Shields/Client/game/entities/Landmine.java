@@ -6,6 +6,8 @@ import game.level.Level;
 import game.net.packets.Packet05Damage;
 import game.net.packets.Packet10Destroy;
 
+import java.util.List;
+
 /**
  * A {@link Landmine} is an {@link Entity} dropped by players that sits on the
  * ground until collided with. They do a lot of damage, however, a player should
@@ -15,9 +17,25 @@ import game.net.packets.Packet10Destroy;
  */
 public class Landmine extends Mob {
 
+	/**
+	 * Landmines that are not in a level anymore.
+	 */
+	public static final EntityPool<Landmine> POOL = new EntityPool<>(
+			"Landmine", 64);
+
+	/**
+	 * Damage a {@link Landmine} does to the player that sets it off.
+	 */
+	public static final int DAMAGE = 8;
+
+	/**
+	 * Pixels a {@link Landmine} sits above where it was placed.
+	 */
+	public static final int RAISE = 4;
+
 	private boolean immune;
-	private final String thisTeam;
-	private final String username;
+	private String thisTeam;
+	private String username;
 
 	/**
 	 * Used to create a {@link Landmine} in a level.
@@ -40,35 +58,67 @@ public class Landmine extends Mob {
 	public Landmine(Level level, int id, String username, int x, int y,
 			boolean immune, String thisTeam) {
 		super(level, id, "Landmine", x, y, 0);
+		reinit(username, x, y, immune, thisTeam);
+	}
+
+	/**
+	 * Gets a {@link Landmine} from the {@link Landmine#POOL}, or makes a new
+	 * one if it is empty. Takes the same arguments as
+	 * {@link Landmine#Landmine(Level, int, String, int, int, boolean, String)}.
+	 *
+	 * @return A {@link Landmine} ready to be added to the level.
+	 */
+	public static Landmine obtain(Level level, int id, String username,
+			int x, int y, boolean immune, String thisTeam) {
+		final Landmine mine = POOL.obtain();
+		if (mine == null) {
+			return new Landmine(level, id, username, x, y, immune, thisTeam);
+		}
+		mine.reset(level, id);
+		mine.reinit(username, x, y, immune, thisTeam);
+		return mine;
+	}
+
+	/**
+	 * Helper method that sets up everything a {@link Landmine} does not share
+	 * with the last one.
+	 */
+	private void reinit(String username, int x, int y, boolean immune,
+			String thisTeam) {
 		this.x = x;
-		this.y = y - 4;
+		this.y = y - RAISE;
 		this.immune = immune;
 		this.thisTeam = thisTeam;
 		this.username = username;
 	}
 
+	@Override
+	public void recycle() {
+		POOL.release(this);
+	}
+
 	@Override
 	public void tick() {
-		for (int i = 0; i < level.getEntities().size(); i++) {
-			final Entity e = level.getEntities().get(i);
+		if (isImmune()) {
+			return;
+		}
+		final List<Entity> near = getEntitiesIn(x - 30, y - 30, x + 31, y + 31);
+		for (int i = 0; i < near.size(); i++) {
+			final Entity e = near.get(i);
 			if (e instanceof Player) {
 				final Player p = (Player) e;
-				if (p.isLocal() && !isImmune()) {
-					if ((x >= (p.x - 31)) && (x < (p.x + 31))
-							&& (y >= (p.y - 31)) && (y < (p.y + 31))) {
-						final Packet05Damage packet = new Packet05Damage(
-								p.getUsername(), 8);
-						packet.writeData(level.getGame().socketClient);
-						final Packet10Destroy destroy = new Packet10Destroy(
-								p.getUsername(), getID());
-						destroy.writeData(level.getGame().socketClient);
-						markAsImmune();
-					}
+				if (p.isLocal() && !isImmune() && overlaps(x, y, p.x, p.y)) {
+					trigger(p);
 				}
 			}
 		}
 	}
 
+	@Override
+	public int getLayer() {
+		return LAYER_GROUND;
+	}
+
 	@Override
 	public void render(Screen screen) {
 		screen.render(x, y, 17, Colors.get(-1, 100, 200,
@@ -92,6 +142,43 @@ public class Landmine extends Mob {
 
 	}
 
+	/**
+	 * Checks if a player is close enough to a {@link Landmine} to set it off.
+	 * Used by the clients and by the server, so both set off the same mines.
+	 *
+	 * @param mineX
+	 *            X of the {@link Landmine}.
+	 * @param mineY
+	 *            Y of the {@link Landmine}, already {@link Landmine#RAISE}d.
+	 * @param playerX
+	 *            X of the player.
+	 * @param playerY
+	 *            Y of the player.
+	 * @return <code>true</code> if the player is on the {@link Landmine}.
+	 */
+	public static boolean overlaps(int mineX, int mineY, int playerX,
+			int playerY) {
+		return (mineX >= (playerX - 31)) && (mineX < (playerX + 31))
+				&& (mineY >= (playerY - 31)) && (mineY < (playerY + 31));
+	}
+
+	/**
+	 * Blows up under a player. Damages the player and asks for the
+	 * {@link Landmine} to be destroyed.
+	 *
+	 * @param p
+	 *            The {@link Player} that ran over the {@link Landmine}.
+	 */
+	public void trigger(Player p) {
+		final Packet05Damage packet = new Packet05Damage(p.getUsername(),
+				DAMAGE);
+		packet.writeData(level.getGame().socketClient);
+		final Packet10Destroy destroy = new Packet10Destroy(p.getUsername(),
+				getID());
+		destroy.writeData(level.getGame().socketClient);
+		markAsImmune();
+	}
+
 	/**
 	 * Marks this {@link Landmine} as immune to the player.
 	 */
@@ -117,4 +204,13 @@ public class Landmine extends Mob {
 	public String getUsername() {
 		return username;
 	}
+
+	/**
+	 * Gets the team of the player that placed the mine.
+	 *
+	 * @return "GREEN" or "RED".
+	 */
+	public String getTeam() {
+		return thisTeam;
+	}
 }
@@ -3,7 +3,9 @@ package game.entities;
 import game.gfx.Colors;
 import game.gfx.Screen;
 import game.level.Level;
-import game.level.tiles.Tile;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A Mob is an {@link Entity} that contains a position and the ability to move.
@@ -55,6 +57,18 @@ public abstract class Mob extends Entity {
 	 */
 	protected int scale = 1;
 
+	/**
+	 * Hit box of the {@link Mob} in pixels, relative to its position. Both
+	 * edges are inside of the box.
+	 */
+	protected int boxX0 = 0, boxY0 = 0, boxX1 = 31, boxY1 = 31;
+
+	/**
+	 * Scratch list filled by {@link Mob#getEntitiesIn(int, int, int, int)}.
+	 * Only used from the thread that ticks the {@link Level}.
+	 */
+	private static final List<Entity> nearby = new ArrayList<>();
+
 	/**
 	 * Creates a new mob
 	 *
@@ -110,6 +124,9 @@ public abstract class Mob extends Entity {
 			}
 			x += xa * speed;
 			y += ya * speed;
+			if (level != null) {
+				level.moved(this);
+			}
 		}
 	}
 
@@ -125,7 +142,10 @@ public abstract class Mob extends Entity {
 	}
 
 	/**
-	 * Checks to see if the {@link Mob} has collided with a solid tile.
+	 * Checks to see if the {@link Mob} would collide with a solid tile by
+	 * taking one step. Only the tiles that the leading edge of the hit box
+	 * would newly enter are looked at, so a {@link Mob} that is already
+	 * overlapping a solid tile is still able to get out.
 	 *
 	 * @param xa
 	 *            1, 0, or -1 direction X.
@@ -134,38 +154,56 @@ public abstract class Mob extends Entity {
 	 * @return <code> True </code> if the {@link Mob} has collided with a tile,
 	 *         <code> False </code> otherwise.
 	 */
-	public abstract boolean hasCollided(int xa, int ya);
-
-	/**
-	 * Checks to see if the boundary of a {@link Mob} has a solid tile below it.
-	 *
-	 * @param xa
-	 *            1, 0, or -1 direction X.
-	 * @param ya
-	 *            1, 0, or -1 direction Y.
-	 * @param x
-	 *            X cord to be checking on. If the difference between this cord
-	 *            and this chord + <code> xa</code> is solid, it returns true.
-	 * @param y
-	 *            Y cord to be checking on. If the difference between this cord
-	 *            and this chord + <code> ya</code> is solid, it returns true.
-	 * @return Returns <code> True</code> if the next tile is solid,
-	 *         <code> False</code> otherwise.
-	 */
-	protected boolean isSolidTile(int xa, int ya, int x, int y) {
+	public boolean hasCollided(int xa, int ya) {
 		if (level == null) {
 			return false;
 		}
-		final Tile lastTile = level.getTile((this.x + x) >> 5,
-				(this.y + y) >> 5);
-		final Tile newTile = level.getTile((this.x + x + xa) >> 5,
-				(this.y + y + ya) >> 5);
-		if (!lastTile.equals(newTile) && newTile.isSolid()) {
-			return true;
+		if (xa != 0) {
+			final int from = (x + (xa > 0 ? boxX1 : boxX0)) >> 5;
+			final int to = (x + (xa > 0 ? boxX1 : boxX0) + (xa * speed)) >> 5;
+			if ((from != to)
+					&& level.isSolidArea(Math.min(from + xa, to),
+							(y + boxY0) >> 5, Math.max(from + xa, to),
+							(y + boxY1) >> 5)) {
+				return true;
+			}
+		}
+		if (ya != 0) {
+			final int from = (y + (ya > 0 ? boxY1 : boxY0)) >> 5;
+			final int to = (y + (ya > 0 ? boxY1 : boxY0) + (ya * speed)) >> 5;
+			if ((from != to)
+					&& level.isSolidArea((x + boxX0) >> 5,
+							Math.min(from + ya, to), (x + boxX1) >> 5,
+							Math.max(from + ya, to))) {
+				return true;
+			}
 		}
 		return false;
 	}
 
+	/**
+	 * Finds every {@link Entity} in the {@link Level} whose position is inside
+	 * of a rectangle. The returned list is reused by the next call, so it
+	 * should not be kept.
+	 *
+	 * @param x0
+	 *            Left edge in pixels.
+	 * @param y0
+	 *            Top edge in pixels.
+	 * @param x1
+	 *            Right edge in pixels (inclusive).
+	 * @param y1
+	 *            Bottom edge in pixels (inclusive).
+	 * @return The entities found.
+	 */
+	protected List<Entity> getEntitiesIn(int x0, int y0, int x1, int y1) {
+		nearby.clear();
+		if (level != null) {
+			level.getEntitiesIn(x0, y0, x1, y1, nearby);
+		}
+		return nearby;
+	}
+
 	/**
 	 * Gets the name of this {@link Mob}.
 	 *
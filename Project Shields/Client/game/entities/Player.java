@@ -200,6 +200,12 @@ public class Player extends Mob {
 	 */
 	private int score = 0;
 
+	/**
+	 * The score as text, so the {@link Font} gets the same {@link String}
+	 * every frame.
+	 */
+	private String scoreText = "0";
+
 	/**
 	 * Creates a new normal player
 	 *
@@ -480,10 +486,10 @@ public class Player extends Mob {
 					+ (movingDir == 3 ? -12 : 0), yOffset - 20,
 					Colors.get(-1, -1, -1, (team.equals("GREEN") ? 050 : 500)),
 					.5);
-			if(level.getGame().currentRunningGamemode != null &&
+			if(level.getGame() != null && level.getGame().currentRunningGamemode != null &&
 					level.getGame().currentRunningGamemode.equals("CTF")) {
-				Font.render(score + "", screen,
-						(xOffset - (((score + "").length() * (int) (22 * .5)) / 2))
+				Font.render(scoreText, screen,
+						(xOffset - ((scoreText.length() * (int) (22 * .5)) / 2))
 						+ 32 + (movingDir == 2 ? 12 : 0)
 						+ (movingDir == 3 ? -12 : 0), yOffset - 44,
 						Colors.get(-1, -1, -1, 555),
@@ -537,35 +543,6 @@ public class Player extends Mob {
 		//super.debugRender(screen);
 	}
 
-	@Override
-	public boolean hasCollided(int xa, int ya) {
-		final int xMin = 0;
-		final int xMax = 31;
-		final int yMin = 0;
-		final int yMax = 31;
-		for (int x = xMin; x < xMax; x++) {
-			if (isSolidTile(xa, ya, x, yMin)) {
-				return true;
-			}
-		}
-		for (int x = xMin; x < xMax; x++) {
-			if (isSolidTile(xa, ya, x, yMax)) {
-				return true;
-			}
-		}
-		for (int y = yMin; y < yMax; y++) {
-			if (isSolidTile(xa, ya, xMin, y)) {
-				return true;
-			}
-		}
-		for (int y = yMin; y < yMax; y++) {
-			if (isSolidTile(xa, ya, xMax, y)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Makes the player take a certain amount of damage.
 	 *
@@ -577,12 +554,12 @@ public class Player extends Mob {
 		if (damage < health) {
 			if (damage >= 0) {
 				damageHit = 20;
-				level.addEntity(new Explode(level, -2, x, y));
+				level.addEntity(Explode.obtain(level, -2, x, y));
 			}
 			health -= damage;
 		} else {
 			health = 0;
-			level.addEntity(new Explode(level, -2, x, y));
+			level.addEntity(Explode.obtain(level, -2, x, y));
 		}
 		int teamcolor = 0;
 		if (team.equals("GREEN")) {
@@ -645,6 +622,15 @@ public class Player extends Mob {
 		return isLocal;
 	}
 
+	/**
+	 * The local player draws the health and energy bars, so it is never
+	 * culled.
+	 */
+	@Override
+	public boolean isCullable() {
+		return !isLocal;
+	}
+
 	/**
 	 * Checks if the player's health is 0.
 	 *
@@ -655,6 +641,15 @@ public class Player extends Mob {
 		return health != 0;
 	}
 
+	/**
+	 * Gets the health of the player.
+	 *
+	 * @return Health, 0 if the player is dead.
+	 */
+	public int getHealth() {
+		return health;
+	}
+
 	/**
 	 * WTF?
 	 *
@@ -704,6 +699,9 @@ public class Player extends Mob {
 		lastY = this.y;
 		this.y = y;
 		onTweenFrame = 0;
+		if (level != null) {
+			level.moved(this);
+		}
 	}
 
 	/**
@@ -718,5 +716,6 @@ public class Player extends Mob {
 	 */
 	public void setScore(int score) {
 		this.score = score;
+		scoreText = Integer.toString(score);
 	}
 }
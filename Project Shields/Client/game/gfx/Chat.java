@@ -30,6 +30,12 @@ public class Chat {
 	 */
 	private final List<Integer> chatColor = new ArrayList<>();
 
+	/**
+	 * Username and message joined together, so the same {@link String} is
+	 * handed to the {@link Font} every frame and its laid out text is reused.
+	 */
+	private final List<String> chatLines = new ArrayList<>();
+
 	/**
 	 * Height of the letters in the chatter box.
 	 */
@@ -82,10 +88,8 @@ public class Chat {
 					(screen.yOffset + screen.height) - 32,
 					Colors.get(-1, -1, -1, 500), TEXT_HEIGHT);
 			for (int i = 0; (i < OPEN_HEIGHT) && (i < chatHistory.size()); i++) {
-				final String cChatter = chatter.get(i);
-				final String cHistory = chatHistory.get(i);
 				final int cColor = chatColor.get(i);
-				Font.render(cChatter + cHistory, screen, screen.xOffset,
+				Font.render(chatLines.get(i), screen, screen.xOffset,
 						(screen.yOffset + screen.height)
 						- (32 + (int) (32 * TEXT_HEIGHT))
 								- (i * (int) (32 * TEXT_HEIGHT)),
@@ -94,10 +98,8 @@ public class Chat {
 		} else {
 			if (showing > 0) {
 				for (int i = 0; (i < CLOSED_HEIGHT) && (i < chatHistory.size()); i++) {
-					final String cChatter = chatter.get(i);
-					final String cHistory = chatHistory.get(i);
 					final int cColor = chatColor.get(i);
-					Font.render(cChatter + cHistory, screen, screen.xOffset,
+					Font.render(chatLines.get(i), screen, screen.xOffset,
 							(screen.yOffset + screen.height) - 32
 									- (i * (int) (32 * TEXT_HEIGHT)),
 							Colors.get(-1, -1, -1, cColor), TEXT_HEIGHT);
@@ -120,6 +122,7 @@ public class Chat {
 		chatter.add(0, username);
 		chatHistory.add(0, message);
 		chatColor.add(0, color);
+		chatLines.add(0, username + message);
 		Debug.out(Type.INFO, CLASS, username + message);
 		showing = TICKS_OPEN; // reset
 	}
@@ -0,0 +1,282 @@
+package game.gfx;
+
+import game.utils.Debug;
+import game.utils.Type;
+
+import java.awt.Canvas;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.util.Random;
+
+/**
+ * The {@link Display} turns the colors of a {@link Screen} into real colors
+ * and puts them on the {@link Canvas} of the game, blown up by a whole number
+ * so every pixel stays sharp. There are two ways of doing this:
+ * <p>
+ * <b>ACCELERATED</b> - The frame is copied into a {@link VolatileImage} (which
+ * can live on the graphics card) and Java2D scales it with nearest neighbor.
+ * </p>
+ * <p>
+ * <b>SOFTWARE</b> - The frame is scaled by our own loop into an image that is
+ * already the size of the window, so Java2D only has to copy it. Used when
+ * there is no accelerated pipeline.
+ * </p>
+ * The mode can be picked with <code>-Dtanks.present=software</code> or changed
+ * at any time with {@link Display#setMode(Mode)}.
+ *
+ * @author AJ Walter
+ */
+public class Display {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "Display";
+
+	/**
+	 * How the frame is put on the window.
+	 */
+	public static enum Mode {
+		ACCELERATED, SOFTWARE
+	}
+
+	/**
+	 * Camera shake offsets (x, y pairs) in window pixels. Made once so shaking
+	 * does not ask for random numbers every frame.
+	 */
+	private static final int[] SHAKE = new int[128];
+
+	static {
+		final Random random = new Random(9714);
+		for (int i = 0; i < SHAKE.length; i++) {
+			SHAKE[i] = random.nextInt(20) - 10;
+		}
+	}
+
+	/**
+	 * Canvas the frames are shown on.
+	 */
+	private final Canvas canvas;
+
+	/**
+	 * Dimensions of a frame before it is scaled.
+	 */
+	private final int width, height;
+
+	/**
+	 * The {@link BufferedImage} the {@link Screen} is colored into.
+	 */
+	private final BufferedImage image;
+
+	/**
+	 * Pixels of {@link Display#image}.
+	 */
+	private final int[] pixels;
+
+	/**
+	 * Every color in the game. See {@link Colors}.
+	 */
+	private final int[] colors = new int[6 * 6 * 6];
+
+	/**
+	 * Copy of the frame that may be kept on the graphics card.
+	 */
+	private VolatileImage volatileImage;
+
+	/**
+	 * Frame already scaled to the window, used by {@link Mode#SOFTWARE}.
+	 */
+	private BufferedImage scaledImage;
+	private int[] scaledPixels;
+	private int scaledFactor;
+
+	private Mode mode;
+
+	/**
+	 * Position in {@link Display#SHAKE}.
+	 */
+	private int onShake = 0;
+
+	/**
+	 * Average time spent presenting a frame, in nanoseconds.
+	 */
+	private double presentTime = 0;
+
+	/**
+	 * Creates a {@link Display}.
+	 *
+	 * @param canvas
+	 *            {@link Canvas} the frames are shown on.
+	 * @param width
+	 *            Width of a frame.
+	 * @param height
+	 *            Height of a frame.
+	 */
+	public Display(Canvas canvas, int width, int height) {
+		this.canvas = canvas;
+		this.width = width;
+		this.height = height;
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		// indexes every single color in the game.
+		int index = 0;
+		for (int r = 0; r < 6; r++) {
+			for (int g = 0; g < 6; g++) {
+				for (int b = 0; b < 6; b++) {
+					final int rr = ((r * 255) / 5);
+					final int gg = ((g * 255) / 5);
+					final int bb = ((b * 255) / 5);
+
+					// Format 770011 or something like that.
+					colors[index++] = (rr << 16) | (gg << 8) | bb;
+				}
+			}
+		}
+
+		mode = "software".equalsIgnoreCase(System
+				.getProperty("tanks.present")) ? Mode.SOFTWARE
+				: Mode.ACCELERATED;
+		Debug.out(Type.DEBUG, CLASS, "Presenting with " + mode);
+	}
+
+	/**
+	 * Colors a {@link Screen} and shows it on the canvas.
+	 *
+	 * @param screen
+	 *            {@link Screen} to show.
+	 * @param bs
+	 *            {@link BufferStrategy} of the canvas.
+	 * @param shake
+	 *            <code>True</code> to shake the camera.
+	 */
+	public void present(Screen screen, BufferStrategy bs, boolean shake) {
+		final long start = System.nanoTime();
+		for (int y = 0; y < screen.height; y++) {
+			for (int x = 0; x < screen.width; x++) {
+				final int colorCode = screen.pixels[x + (y * screen.width)];
+				if (colorCode < 255) {
+					pixels[x + (y * width)] = colors[colorCode];
+				}
+			}
+		}
+
+		final int factor = Math.max(1, Math.min(canvas.getWidth() / width,
+				canvas.getHeight() / height));
+		int xPos = (canvas.getWidth() - (width * factor)) / 2;
+		int yPos = (canvas.getHeight() - (height * factor)) / 2;
+		if (shake) {
+			xPos += SHAKE[onShake];
+			yPos += SHAKE[onShake + 1];
+			onShake = (onShake + 2) % SHAKE.length;
+		}
+
+		do {
+			do {
+				final Graphics g = bs.getDrawGraphics();
+				if ((mode != Mode.ACCELERATED)
+						|| !presentAccelerated(g, xPos, yPos, factor)) {
+					presentSoftware(g, xPos, yPos, factor);
+				}
+				g.dispose();
+			} while (bs.contentsRestored());
+			bs.show();
+		} while (bs.contentsLost());
+
+		presentTime += ((System.nanoTime() - start) - presentTime) * 0.05;
+	}
+
+	/**
+	 * Shows the frame through a {@link VolatileImage}.
+	 *
+	 * @return <code>False</code> if no {@link VolatileImage} could be made.
+	 */
+	private boolean presentAccelerated(Graphics g, int xPos, int yPos,
+			int factor) {
+		if ((volatileImage == null)
+				|| (volatileImage.validate(canvas.getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE)) {
+			volatileImage = canvas.createVolatileImage(width, height);
+			if (volatileImage == null) {
+				Debug.out(Type.WARNING, CLASS,
+						"No accelerated image, falling back to software.");
+				mode = Mode.SOFTWARE;
+				return false;
+			}
+		}
+		final Graphics vg = volatileImage.getGraphics();
+		vg.drawImage(image, 0, 0, null);
+		vg.dispose();
+
+		final Graphics2D g2 = (Graphics2D) g;
+		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g2.drawImage(volatileImage, xPos, yPos, width * factor, height
+				* factor, null);
+		return true;
+	}
+
+	/**
+	 * Scales the frame in our own loop, then copies it to the window as is.
+	 */
+	private void presentSoftware(Graphics g, int xPos, int yPos, int factor) {
+		if ((scaledImage == null) || (scaledFactor != factor)) {
+			scaledFactor = factor;
+			scaledImage = new BufferedImage(width * factor, height * factor,
+					BufferedImage.TYPE_INT_RGB);
+			scaledPixels = ((DataBufferInt) scaledImage.getRaster()
+					.getDataBuffer()).getData();
+		}
+		final int scaledWidth = width * factor;
+		for (int y = 0; y < height; y++) {
+			final int src = y * width;
+			final int dst = y * factor * scaledWidth;
+			for (int x = 0; x < width; x++) {
+				final int col = pixels[src + x];
+				final int at = dst + (x * factor);
+				for (int i = 0; i < factor; i++) {
+					scaledPixels[at + i] = col;
+				}
+			}
+			// The rest of the rows in this block are the same.
+			for (int i = 1; i < factor; i++) {
+				System.arraycopy(scaledPixels, dst, scaledPixels, dst
+						+ (i * scaledWidth), scaledWidth);
+			}
+		}
+		g.drawImage(scaledImage, xPos, yPos, null);
+	}
+
+	/**
+	 * Gets how the frames are being presented.
+	 *
+	 * @return The {@link Mode}.
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Changes how the frames are presented. Takes effect on the next frame.
+	 *
+	 * @param mode
+	 *            The {@link Mode}.
+	 */
+	public void setMode(Mode mode) {
+		Debug.out(Type.INFO, CLASS, "Presenting with " + mode);
+		this.mode = mode;
+	}
+
+	/**
+	 * Gets the average time it takes to present a frame.
+	 *
+	 * @return Time in milliseconds.
+	 */
+	public double getPresentTime() {
+		return presentTime / 1000000D;
+	}
+}
@@ -1,7 +1,21 @@
 package game.gfx;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
- * Renders a font.
+ * Renders a font. Letters are drawn once into a {@link GlyphAtlas} for every
+ * size and color that is used. A string is drawn letter by letter from the
+ * atlas until it is drawn a second time, then it is laid out once into a
+ * {@link TextRun}. Text that does not change between frames (usernames, chat,
+ * scores) is then drawn with a single blit, and text that changes every frame
+ * does not make a new run every frame.
+ * <p>
+ * Text is cut off at the edges of the screen. The old per letter renderer
+ * could wrap a scaled letter that crossed the right edge onto the next row
+ * of pixels, so text there looks a little different.
+ * </p>
  *
  * @author AJ Walter
  */
@@ -12,6 +26,57 @@ public class Font {
 	 */
 	public static final String CHARS = "0123456789.,:;'\"!?$%()-=+/<>    ABCDEFGHIJKLMNOPQRSTUVWXYZ|";
 
+	/**
+	 * The most amount of laid out strings that are remembered. When more are
+	 * made, the one that was drawn the longest time ago is forgotten. Must be
+	 * a power of 2.
+	 */
+	public static final int MAX_RUNS = 256;
+
+	/**
+	 * Index of every ASCII character in {@link Font#CHARS}, or -1 if it
+	 * cannot be drawn. Lower case letters point to the upper case ones.
+	 */
+	private static final int[] CHAR_INDEX = new int[128];
+
+	static {
+		for (int c = 0; c < CHAR_INDEX.length; c++) {
+			CHAR_INDEX[c] = CHARS.indexOf(Character.toUpperCase((char) c));
+		}
+	}
+
+	/**
+	 * Every {@link GlyphAtlas} made so far, by size and color.
+	 */
+	private static final Map<Key, GlyphAtlas> atlases = new HashMap<>();
+
+	/**
+	 * Recently drawn strings, by message, size and color.
+	 */
+	private static final Map<Key, TextRun> runs = new LinkedHashMap<Key, TextRun>(
+			MAX_RUNS, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, TextRun> eldest) {
+			return size() > MAX_RUNS;
+		}
+	};
+
+	/**
+	 * Hashes of strings drawn once but not laid out yet, by the low bits of
+	 * the hash. Two strings with the same slot push each other out, and two
+	 * strings with the same hash share a slot, which only makes one of them
+	 * get laid out a draw early.
+	 */
+	private static final int[] seen = new int[MAX_RUNS];
+
+	/**
+	 * Reused to look things up in the caches without making a new key every
+	 * frame. Only touched from the render thread.
+	 */
+	private static final Key lookup = new Key();
+
 	/**
 	 * Renders the string
 	 *
@@ -27,14 +92,7 @@ public class Font {
 	 *            The color of the font.
 	 */
 	public static void render(String msg, Screen screen, int x, int y, int color) {
-		msg = msg.toUpperCase();
-
-		for (int i = 0; i < msg.length(); i++) {
-			final int charIndex = CHARS.indexOf(msg.charAt(i));
-			if (charIndex >= 0) {
-				screen.render(x + (i * 22), y, charIndex + (12 * 16), color);
-			}
-		}
+		render(msg, screen, x, y, color, 1);
 	}
 
 	/**
@@ -55,29 +113,161 @@ public class Font {
 	 */
 	public static void render(String msg, Screen screen, int x, int y,
 			int color, double scale) {
-		msg = msg.toUpperCase();
-
-		double strecher = 0.0;
-		double hstrecher = 0.0;
-
-		if (scale >= 1.0) {
-			scale = (int) scale;
-			strecher = (int) scale;
-			hstrecher = 1;
-		} else {
-			strecher = scale;
-			hstrecher = scale;
-			scale = 1;
+		if (msg.isEmpty()) {
+			return;
 		}
-
+		scale = normalize(scale);
+		final TextRun run = getRun(msg, screen.sheet, color, scale);
+		if (run != null) {
+			screen.blit(run.pixels, run.width, run.height, x, y);
+			return;
+		}
+		final GlyphAtlas atlas = getAtlas(screen.sheet, color, scale);
 		for (int i = 0; i < msg.length(); i++) {
-			final int charIndex = CHARS.indexOf(msg.charAt(i));
+			final int charIndex = indexOf(msg.charAt(i));
 			if (charIndex >= 0) {
-				screen.render(
-						(int) (x + ((i * 22 * hstrecher) * scale) + ((scale - 1) * 16)),
-						(int) (y + ((scale - 1) * 16)), charIndex + (12 * 16),
-						color, false, false, strecher);
+				screen.blit(atlas.getGlyph(charIndex), atlas.size, atlas.size,
+						x + (int) (i * atlas.advance), y);
+			}
+		}
+	}
+
+	/**
+	 * Cleans up a scale the same way the old per letter renderer did. Sizes
+	 * of 1 and larger are cut down to whole numbers.
+	 *
+	 * @param scale
+	 *            Requested scale.
+	 * @return Scale the font is really drawn at.
+	 */
+	public static double normalize(double scale) {
+		return scale >= 1.0 ? (int) scale : scale;
+	}
+
+	/**
+	 * Gets a laid out string from the cache. A string that is not there is
+	 * only laid out if it was drawn once before, so text that changes every
+	 * frame is never laid out.
+	 *
+	 * @param msg
+	 *            Message to lay out.
+	 * @param sheet
+	 *            {@link Sprites} containing the font.
+	 * @param color
+	 *            The color of the font.
+	 * @param scale
+	 *            Normalized size of the font.
+	 * @return The {@link TextRun} of the message, or <code>null</code> if it
+	 *         should be drawn letter by letter.
+	 */
+	private static TextRun getRun(String msg, Sprites sheet, int color,
+			double scale) {
+		lookup.set(msg, scale, color);
+		TextRun run = runs.get(lookup);
+		if (run == null) {
+			final int hash = lookup.hashCode();
+			final int slot = hash & (MAX_RUNS - 1);
+			if (seen[slot] != hash) {
+				seen[slot] = hash;
+				return null;
+			}
+			seen[slot] = 0;
+			run = layout(msg, getAtlas(sheet, color, scale));
+			runs.put(new Key().set(msg, scale, color), run);
+		}
+		return run;
+	}
+
+	/**
+	 * Gets the {@link GlyphAtlas} of a size and color, making it if needed.
+	 *
+	 * @param sheet
+	 *            {@link Sprites} containing the font.
+	 * @param color
+	 *            The color of the font.
+	 * @param scale
+	 *            Normalized size of the font.
+	 * @return The atlas.
+	 */
+	private static GlyphAtlas getAtlas(Sprites sheet, int color, double scale) {
+		lookup.set(null, scale, color);
+		GlyphAtlas atlas = atlases.get(lookup);
+		if (atlas == null) {
+			atlas = new GlyphAtlas(sheet, scale, color);
+			atlases.put(new Key().set(null, scale, color), atlas);
+		}
+		return atlas;
+	}
+
+	/**
+	 * Lays out a message into a new {@link TextRun}.
+	 *
+	 * @param msg
+	 *            Message to lay out.
+	 * @param atlas
+	 *            Glyphs to use.
+	 * @return The laid out message.
+	 */
+	private static TextRun layout(String msg, GlyphAtlas atlas) {
+		final int length = msg.length();
+		final TextRun run = new TextRun((int) ((length - 1) * atlas.advance)
+				+ atlas.size, atlas.size);
+		for (int i = 0; i < length; i++) {
+			final int charIndex = indexOf(msg.charAt(i));
+			if (charIndex >= 0) {
+				run.draw(atlas.getGlyph(charIndex), atlas.size,
+						(int) (i * atlas.advance));
+			}
+		}
+		return run;
+	}
+
+	/**
+	 * Finds a character on the character sheet.
+	 *
+	 * @param c
+	 *            Character to find.
+	 * @return Index in {@link Font#CHARS}, or -1 if it cannot be drawn.
+	 */
+	private static int indexOf(char c) {
+		if (c < CHAR_INDEX.length) {
+			return CHAR_INDEX[c];
+		}
+		return CHARS.indexOf(Character.toUpperCase(c));
+	}
+
+	/**
+	 * Key of both caches. Atlases use a null message.
+	 */
+	private static final class Key {
+		private String msg;
+		private double scale;
+		private int color;
+
+		private Key set(String msg, double scale, int color) {
+			this.msg = msg;
+			this.scale = scale;
+			this.color = color;
+			return this;
+		}
+
+		@Override
+		public int hashCode() {
+			final long bits = Double.doubleToLongBits(scale);
+			int hash = (msg == null ? 0 : msg.hashCode());
+			hash = (31 * hash) + color;
+			return (31 * hash) + (int) (bits ^ (bits >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
 			}
+			final Key other = (Key) obj;
+			return (color == other.color)
+					&& (Double.compare(scale, other.scale) == 0)
+					&& (msg == null ? other.msg == null : msg.equals(other.msg));
 		}
 	}
 }
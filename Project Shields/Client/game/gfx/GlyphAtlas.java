@@ -0,0 +1,81 @@
+package game.gfx;
+
+/**
+ * A {@link GlyphAtlas} holds every letter of the {@link Font} already drawn at
+ * one size and in one color. Glyphs are drawn with the normal
+ * {@link Screen#render(int, int, int, int, boolean, boolean, double)} method
+ * when the atlas is made, so they look exactly like letters drawn straight to
+ * the screen.
+ *
+ * @author AJ Walter
+ * @see Font
+ */
+public class GlyphAtlas {
+
+	/**
+	 * Size the atlas was made for (0.0 - 1.0 double, int larger than 1).
+	 */
+	public final double scale;
+
+	/**
+	 * Color the atlas was made with.
+	 */
+	public final int color;
+
+	/**
+	 * Width and height of every glyph in pixels.
+	 */
+	public final int size;
+
+	/**
+	 * Distance in pixels from one letter to the next, before rounding.
+	 */
+	public final double advance;
+
+	/**
+	 * Pixels of every glyph, in the same order as {@link Font#CHARS}.
+	 */
+	private final int[][] glyphs;
+
+	/**
+	 * Draws every glyph of the font.
+	 *
+	 * @param sheet
+	 *            {@link Sprites} containing the font.
+	 * @param scale
+	 *            Size of the font. Should already be cleaned up by
+	 *            {@link Font#normalize(double)}.
+	 * @param color
+	 *            Color of the font.
+	 */
+	public GlyphAtlas(Sprites sheet, double scale, int color) {
+		this.scale = scale;
+		this.color = color;
+		advance = 22 * scale;
+		size = scale >= 1.0 ? 32 * (int) scale : 32;
+		glyphs = new int[Font.CHARS.length()][];
+
+		// Scratch screen the glyphs are drawn on before being copied out.
+		final Screen scratch = new Screen(size, size, sheet);
+		final int shift = scale >= 1.0 ? ((int) scale - 1) * 16 : 0;
+		for (int i = 0; i < glyphs.length; i++) {
+			for (int p = 0; p < scratch.pixels.length; p++) {
+				scratch.pixels[p] = 255;
+			}
+			scratch.render(shift, shift, i + (12 * 16), color, false, false,
+					scale);
+			glyphs[i] = scratch.pixels.clone();
+		}
+	}
+
+	/**
+	 * Gets the pixels of a glyph.
+	 *
+	 * @param charIndex
+	 *            Index of the character in {@link Font#CHARS}.
+	 * @return Pixels of the glyph. 255 is see through.
+	 */
+	public int[] getGlyph(int charIndex) {
+		return glyphs[charIndex];
+	}
+}
@@ -44,6 +44,13 @@ public class Screen {
 	 */
 	public Sprites sheet;
 
+	/**
+	 * Scratch space used by the blitters, so they do not allocate while
+	 * drawing.
+	 */
+	private int[] scaledRow = new int[64];
+	private final int[] smallX = new int[32], smallY = new int[32];
+
 	/**
 	 * Creates the Screen. When it is initialized, it colorizes every available
 	 * pixel.
@@ -113,7 +120,9 @@ public class Screen {
 
 	/**
 	 * Full method for rendering a sprite to the screen! Wow, this method got
-	 * complicated fast.
+	 * complicated fast, so now it only picks which of the blitters below does
+	 * the drawing. Each blitter works out which part of the sprite is on the
+	 * screen once per sprite, so the inner loops never check bounds.
 	 *
 	 * @param xPos
 	 *            X position to render
@@ -133,73 +142,226 @@ public class Screen {
 	 */
 	public void render(int xPos, int yPos, int tile, int color,
 			boolean mirrorX, boolean mirrorY, double scale) {
-		double strecher = 0.0;
-		boolean small = false;
-
-		if (scale >= 1.0) {
-			scale = (int) scale;
-		} else {
-			strecher = scale;
-			scale = 1;
-			small = true;
-		}
 		// Sets where we currently are
 		xPos -= xOffset;
 		yPos -= yOffset;
-		final int scaleMap = (int) scale - 1;
 
 		final int xTile = tile % 16; // We have 16 rows
 		final int yTile = tile / 16; // And 16 cols.
 
 		// Shift 5 because the tiles are 32
 		final int tileOffset = (xTile << 5) + ((yTile << 5) * sheet.width);
-		// Begin rendering.
-		for (int y = 0; y < 32; y++) {
-			int ySheet = y;
-			if (mirrorY) { // Do we need to mirror?
-				ySheet = 31 - y;
+
+		if (scale < 1.0) {
+			renderSmall(xPos, yPos, tileOffset, color, mirrorX, mirrorY, scale);
+		} else if ((int) scale == 1) {
+			renderNormal(xPos, yPos, tileOffset, color, mirrorX, mirrorY);
+		} else {
+			renderScaled(xPos, yPos, tileOffset, color, mirrorX, mirrorY,
+					(int) scale);
+		}
+	}
+
+	/**
+	 * Draws a sprite at its normal size. This is what every tile uses.
+	 *
+	 * @param xPos
+	 *            X position on the screen.
+	 * @param yPos
+	 *            Y position on the screen.
+	 * @param tileOffset
+	 *            Index of the top left pixel of the sprite in the sheet.
+	 * @param color
+	 *            Color of the sprite.
+	 * @param mirrorX
+	 *            Mirror x?
+	 * @param mirrorY
+	 *            Mirror y?
+	 */
+	private void renderNormal(int xPos, int yPos, int tileOffset, int color,
+			boolean mirrorX, boolean mirrorY) {
+		final int x0 = Math.max(0, -xPos);
+		final int x1 = Math.min(32, width - xPos);
+		final int y0 = Math.max(0, -yPos);
+		final int y1 = Math.min(32, height - yPos);
+		if ((x0 >= x1) || (y0 >= y1)) {
+			return; // Off the screen.
+		}
+		final int[] sheetPixels = sheet.pixels;
+		for (int y = y0; y < y1; y++) {
+			final int srcRow = tileOffset
+					+ ((mirrorY ? 31 - y : y) * sheet.width);
+			final int dstRow = xPos + ((y + yPos) * width);
+			if (!mirrorX) {
+				for (int x = x0; x < x1; x++) {
+					final int col = (color >> (sheetPixels[srcRow + x] << 3)) & 255;
+					if (col < 255) {
+						pixels[dstRow + x] = col;
+					}
+				}
+			} else {
+				final int srcEnd = srcRow + 31;
+				for (int x = x0; x < x1; x++) {
+					final int col = (color >> (sheetPixels[srcEnd - x] << 3)) & 255;
+					if (col < 255) {
+						pixels[dstRow + x] = col;
+					}
+				}
 			}
+		}
+	}
 
-			final int yPixel = (y + yPos + (y * scaleMap))
-					- ((scaleMap << 5) / 2);
+	/**
+	 * Draws a sprite blown up by a whole number. Every pixel of the sprite
+	 * becomes a block of <code>scale</code> by <code>scale</code> pixels, and
+	 * the sprite grows out from its center.
+	 *
+	 * @param xPos
+	 *            X position on the screen.
+	 * @param yPos
+	 *            Y position on the screen.
+	 * @param tileOffset
+	 *            Index of the top left pixel of the sprite in the sheet.
+	 * @param color
+	 *            Color of the sprite.
+	 * @param mirrorX
+	 *            Mirror x?
+	 * @param mirrorY
+	 *            Mirror y?
+	 * @param scale
+	 *            Whole number larger than 1.
+	 */
+	private void renderScaled(int xPos, int yPos, int tileOffset, int color,
+			boolean mirrorX, boolean mirrorY, int scale) {
+		final int size = scale << 5;
+		final int left = xPos - (((scale - 1) << 5) / 2);
+		final int top = yPos - (((scale - 1) << 5) / 2);
+		final int x0 = Math.max(0, -left);
+		final int x1 = Math.min(size, width - left);
+		final int y0 = Math.max(0, -top);
+		final int y1 = Math.min(size, height - top);
+		if ((x0 >= x1) || (y0 >= y1)) {
+			return; // Off the screen.
+		}
+		if (scaledRow.length < size) {
+			scaledRow = new int[size];
+		}
+		final int[] row = scaledRow;
+		final int[] sheetPixels = sheet.pixels;
+		int lastY = -1;
+		for (int y = y0; y < y1; y++) {
+			final int ySheet = y / scale;
+			if (ySheet != lastY) {
+				// Stretch one row of the sprite once, then reuse it for the
+				// rest of the rows in this block.
+				lastY = ySheet;
+				final int srcRow = tileOffset
+						+ ((mirrorY ? 31 - ySheet : ySheet) * sheet.width);
+				for (int x = 0; x < 32; x++) {
+					final int col = (color >> (sheetPixels[srcRow
+					                                       + (mirrorX ? 31 - x : x)] << 3)) & 255;
+					final int end = (x + 1) * scale;
+					for (int i = x * scale; i < end; i++) {
+						row[i] = col;
+					}
+				}
+			}
+			final int dstRow = left + ((y + top) * width);
+			for (int x = x0; x < x1; x++) {
+				final int col = row[x];
+				if (col < 255) {
+					pixels[dstRow + x] = col;
+				}
+			}
+		}
+	}
 
-			for (int x = 0; x < 32; x++) {
-				int xSheet = x;
-				if (mirrorX) { // Do we need to mirror?
-					xSheet = 31 - x;
+	/**
+	 * Draws a sprite squished down. Each pixel of the sprite is pulled toward
+	 * the top left corner by <code>(1 - scale)</code> of its distance from
+	 * it. Pixels are only drawn when their unsquished spot is on the screen.
+	 *
+	 * @param xPos
+	 *            X position on the screen.
+	 * @param yPos
+	 *            Y position on the screen.
+	 * @param tileOffset
+	 *            Index of the top left pixel of the sprite in the sheet.
+	 * @param color
+	 *            Color of the sprite.
+	 * @param mirrorX
+	 *            Mirror x?
+	 * @param mirrorY
+	 *            Mirror y?
+	 * @param scale
+	 *            Double 0.0 - 1.0.
+	 */
+	private void renderSmall(int xPos, int yPos, int tileOffset, int color,
+			boolean mirrorX, boolean mirrorY, double scale) {
+		final int x0 = Math.max(0, -xPos);
+		final int x1 = Math.min(32, width - xPos);
+		final int y0 = Math.max(0, -yPos);
+		final int y1 = Math.min(32, height - yPos);
+		if ((x0 >= x1) || (y0 >= y1)) {
+			return; // Off the screen.
+		}
+		final double shrink = 1 - scale;
+		final int[] pullX = smallX;
+		final int[] pullY = smallY;
+		for (int i = 0; i < 32; i++) {
+			pullX[i] = (int) ((mirrorX ? 31 - i : i) * shrink);
+			pullY[i] = (int) ((mirrorY ? 31 - i : i) * shrink);
+		}
+		final int[] sheetPixels = sheet.pixels;
+		for (int y = y0; y < y1; y++) {
+			final int yDest = (y + yPos) - pullY[y];
+			if (yDest < 0) {
+				continue;
+			}
+			final int srcRow = tileOffset
+					+ ((mirrorY ? 31 - y : y) * sheet.width);
+			final int dstRow = xPos + (yDest * width);
+			for (int x = x0; x < x1; x++) {
+				final int col = (color >> (sheetPixels[srcRow
+				                                       + (mirrorX ? 31 - x : x)] << 3)) & 255;
+				if ((col < 255) && ((x + xPos) >= pullX[x])) {
+					pixels[dstRow + x - pullX[x]] = col;
 				}
+			}
+		}
+	}
 
-				final int xPixel = (x + xPos + (x * scaleMap))
-						- ((scaleMap << 5) / 2);
+	/**
+	 * Copies a block of already colored pixels to the screen. Used to draw
+	 * things that were rendered ahead of time, like a {@link TextRun}.
+	 *
+	 * @param src
+	 *            Pixels to copy. A value of 255 or more is see through.
+	 * @param srcWidth
+	 *            Width of the block.
+	 * @param srcHeight
+	 *            Height of the block.
+	 * @param xPos
+	 *            X position to render
+	 * @param yPos
+	 *            Y position to render
+	 */
+	public void blit(int[] src, int srcWidth, int srcHeight, int xPos, int yPos) {
+		xPos -= xOffset;
+		yPos -= yOffset;
 
-				final int col = (color >> (sheet.pixels[xSheet
-				                                        + (ySheet * sheet.width) + tileOffset] * 8)) & 255; // Colorize
-				// pixels
+		// Only walk the part of the block that is on the screen.
+		final int x0 = Math.max(0, -xPos);
+		final int x1 = Math.min(srcWidth, width - xPos);
+		final int y0 = Math.max(0, -yPos);
+		final int y1 = Math.min(srcHeight, height - yPos);
+		for (int y = y0; y < y1; y++) {
+			final int srcRow = y * srcWidth;
+			final int dstRow = xPos + ((y + yPos) * width);
+			for (int x = x0; x < x1; x++) {
+				final int col = src[srcRow + x];
 				if (col < 255) {
-					for (int yScale = 0; yScale < scale; yScale++) {
-						if (((yPixel + yScale) < 0)
-								|| ((yPixel + yScale) >= height)) {
-							continue; // Continue if not out of bounds.
-						}
-						for (int xScale = 0; xScale < scale; xScale++) {
-							if (((xPixel + xScale) < 0)
-									|| ((xPixel + xScale) >= width)) {
-								continue; // Continue if not out of bounds.
-							}
-							if (!small) {
-								pixels[(xPixel + xScale)
-								       + ((yPixel + yScale) * width)] = col; // Set
-								// colors.
-							} else {
-								final int temp = (xPixel - (int) (xSheet * (1 - strecher)))
-										+ ((yPixel - (int) (ySheet * (1 - strecher))) * width);
-								if ((temp >= 0)
-										&& ((xPixel - (int) (xSheet * (1 - strecher))) >= 0)) {
-									pixels[temp] = col; // Set colors.
-								} // Favorite lines of code from all time
-							}
-						}
-					}
+					pixels[dstRow + x] = col;
 				}
 			}
 		}
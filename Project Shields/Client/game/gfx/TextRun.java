@@ -0,0 +1,64 @@
+package game.gfx;
+
+/**
+ * A {@link TextRun} is a piece of text that has already been laid out and
+ * drawn into its own small pixel buffer. Once a run is made it can be drawn to
+ * a {@link Screen} with a single {@link Screen#blit(int[], int, int, int, int)}
+ * instead of rendering every letter again.
+ *
+ * @author AJ Walter
+ * @see Font
+ */
+public class TextRun {
+
+	/**
+	 * Pixels of the run. A value of 255 is see through.
+	 */
+	public final int[] pixels;
+
+	/**
+	 * Dimensions of the run in pixels.
+	 */
+	public final int width, height;
+
+	/**
+	 * Creates an empty (see through) run.
+	 *
+	 * @param width
+	 *            Width of the run.
+	 * @param height
+	 *            Height of the run.
+	 */
+	public TextRun(int width, int height) {
+		this.width = width;
+		this.height = height;
+		pixels = new int[width * height];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 255;
+		}
+	}
+
+	/**
+	 * Copies a glyph into this run. See through pixels of the glyph are
+	 * skipped, so glyphs that overlap keep the letter drawn underneath.
+	 *
+	 * @param glyph
+	 *            Pixels of the glyph.
+	 * @param size
+	 *            Width and height of the glyph.
+	 * @param xPos
+	 *            X position of the glyph in this run.
+	 */
+	public void draw(int[] glyph, int size, int xPos) {
+		for (int y = 0; y < size; y++) {
+			final int src = y * size;
+			final int dst = xPos + (y * width);
+			for (int x = 0; x < size; x++) {
+				final int col = glyph[src + x];
+				if (col < 255) {
+					pixels[dst + x] = col;
+				}
+			}
+		}
+	}
+}
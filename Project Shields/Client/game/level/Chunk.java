@@ -0,0 +1,204 @@
+package game.level;
+
+import game.level.tiles.Tile;
+
+/**
+ * A {@link Chunk} is a square of {@link Chunk#SIZE} by {@link Chunk#SIZE}
+ * tiles of a {@link ChunkMap}. Parts of a chunk that hang over the edge of
+ * the level are {@link Tile#VOID}.
+ *
+ * @author AJ Walter
+ */
+public class Chunk {
+
+	/**
+	 * Chunks are 1 << SHIFT tiles wide and high.
+	 */
+	public static final int SHIFT = 5, SIZE = 1 << SHIFT, MASK = SIZE - 1;
+
+	/**
+	 * Position of the chunk, in chunks.
+	 */
+	public final int cx, cy;
+
+	/**
+	 * IDs of the tiles, row by row.
+	 */
+	private final byte[] tiles = new byte[SIZE * SIZE];
+
+	/**
+	 * One bit for every tile in a row (bit 0 is the left tile), set if the
+	 * tile is solid.
+	 */
+	private final int[] solidRows = new int[SIZE];
+
+	/**
+	 * Goes up every time a tile changes.
+	 */
+	private int version = 0;
+
+	/**
+	 * <code>True</code> if a tile was changed since the chunk was loaded.
+	 */
+	private boolean dirty = false;
+
+	/**
+	 * Value of the {@link ChunkMap} clock the chunk was last used at.
+	 */
+	long lastUsed;
+
+	/**
+	 * Creates a chunk full of {@link Tile#VOID}.
+	 *
+	 * @param cx
+	 *            X position in chunks.
+	 * @param cy
+	 *            Y position in chunks.
+	 */
+	public Chunk(int cx, int cy) {
+		this.cx = cx;
+		this.cy = cy;
+		for (int i = 0; i < SIZE; i++) {
+			solidRows[i] = Tile.VOID.isSolid() ? -1 : 0;
+		}
+	}
+
+	/**
+	 * Gets the ID of a tile.
+	 *
+	 * @param x
+	 *            X inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @param y
+	 *            Y inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @return ID of the tile.
+	 */
+	public byte getTile(int x, int y) {
+		return tiles[(y << SHIFT) | x];
+	}
+
+	/**
+	 * Checks if a tile is solid.
+	 *
+	 * @param x
+	 *            X inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @param y
+	 *            Y inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @return <code>True</code> if the tile is solid.
+	 */
+	public boolean isSolid(int x, int y) {
+		return ((solidRows[y] >>> x) & 1) != 0;
+	}
+
+	/**
+	 * Gets the solid tiles of a row.
+	 *
+	 * @param y
+	 *            Y inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @return One bit for every tile, bit 0 being the left one.
+	 */
+	public int getSolidRow(int y) {
+		return solidRows[y];
+	}
+
+	/**
+	 * Copies the solid rows of the chunk.
+	 *
+	 * @return One int for every row, see {@link Chunk#getSolidRow(int)}.
+	 */
+	public int[] copySolidRows() {
+		return solidRows.clone();
+	}
+
+	/**
+	 * Changes a tile. The version of the chunk goes up.
+	 *
+	 * @param x
+	 *            X inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @param y
+	 *            Y inside of the chunk, 0 to {@link Chunk#MASK}.
+	 * @param tile
+	 *            The new {@link Tile}.
+	 */
+	public void setTile(int x, int y, Tile tile) {
+		place(x, y, tile.getId());
+		version++;
+		dirty = true;
+	}
+
+	/**
+	 * Fills the tiles of a part of a row without changing the version, used
+	 * while the chunk is loaded.
+	 *
+	 * @param x
+	 *            First X inside of the chunk.
+	 * @param y
+	 *            Y inside of the chunk.
+	 * @param ids
+	 *            Array to copy tile IDs from.
+	 * @param offset
+	 *            Place of the first ID in the array.
+	 * @param length
+	 *            Amount of tiles.
+	 */
+	public void fillRow(int x, int y, byte[] ids, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			place(x + i, y, ids[offset + i]);
+		}
+	}
+
+	/**
+	 * Helper method that puts an ID in a tile and updates the solid bit.
+	 */
+	private void place(int x, int y, byte id) {
+		tiles[(y << SHIFT) | x] = id;
+		if (Tile.tiles[id].isSolid()) {
+			solidRows[y] |= 1 << x;
+		} else {
+			solidRows[y] &= ~(1 << x);
+		}
+	}
+
+	/**
+	 * Copies the IDs of some rows.
+	 *
+	 * @param y
+	 *            First row.
+	 * @param rows
+	 *            Amount of rows.
+	 * @return IDs, row by row.
+	 */
+	public byte[] copyRows(int y, int rows) {
+		final byte[] out = new byte[rows << SHIFT];
+		System.arraycopy(tiles, y << SHIFT, out, 0, out.length);
+		return out;
+	}
+
+	/**
+	 * Gets how many times a tile of this chunk changed.
+	 *
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the version, used when the chunk came from a server.
+	 *
+	 * @param version
+	 *            The version.
+	 */
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * Checks if a tile was changed since the chunk was loaded. Changed chunks
+	 * can not be loaded again, so they are never thrown away.
+	 *
+	 * @return <code>True</code> if changed.
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+}
@@ -0,0 +1,452 @@
+package game.level;
+
+import game.level.tiles.Tile;
+import game.utils.Debug;
+import game.utils.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link ChunkMap} holds the tiles of a {@link Level} as {@link Chunk}s.
+ * Chunks can come from three places:
+ * <p>
+ * <b>Memory</b> - The whole level was loaded at once (PNGs and small level
+ * files). Every chunk is there and nothing is thrown away.
+ * </p>
+ * <p>
+ * <b>A chunked {@link LevelFile}</b> - Chunks are read from the file the
+ * first time they are used. When more than the capacity are loaded, the
+ * ones used the longest time ago are thrown away, unless a tile in them was
+ * changed.
+ * </p>
+ * <p>
+ * <b>A server</b> - Chunks are put in as they arrive over the network. Until
+ * then, they count as {@link Tile#VOID}. Thrown away the same way, since the
+ * server can send them again.
+ * </p>
+ * Only the thread that ticks the level may use a {@link ChunkMap}.
+ *
+ * @author AJ Walter
+ */
+public class ChunkMap {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "ChunkMap";
+
+	/**
+	 * Most chunks kept loaded for streamed levels, set with
+	 * <code>-Dtanks.chunks</code>.
+	 */
+	public static final int CAPACITY = Integer.getInteger("tanks.chunks", 1024);
+
+	/**
+	 * Sorts chunks from used the longest time ago to used last.
+	 */
+	private static final Comparator<Chunk> LEAST_RECENT = new Comparator<Chunk>() {
+		@Override
+		public int compare(Chunk a, Chunk b) {
+			return Long.compare(a.lastUsed, b.lastUsed);
+		}
+	};
+
+	/**
+	 * Dimensions of the level in {@link Tile}s and in {@link Chunk}s.
+	 */
+	public final int width, height, chunksWide, chunksHigh;
+
+	/**
+	 * Every chunk, row by row. <code>null</code> if not loaded.
+	 */
+	private final Chunk[] chunks;
+
+	/**
+	 * File chunks are loaded from, or <code>null</code>.
+	 */
+	private final LevelFile source;
+
+	/**
+	 * <code>True</code> if chunks come from a server.
+	 */
+	private final boolean remote;
+
+	private final int capacity;
+	private int loaded = 0;
+
+	/**
+	 * Goes up every tick, see {@link ChunkMap#tick()}.
+	 */
+	private long clock = 0;
+
+	/**
+	 * Gives every {@link SolidMap} of every map its own version.
+	 */
+	private static final AtomicInteger SNAPSHOTS = new AtomicInteger();
+
+	/**
+	 * Goes up every time a chunk is put in or a tile changes.
+	 */
+	private int changes = 0;
+
+	/**
+	 * The last {@link SolidMap}, the value of {@link ChunkMap#changes} it was
+	 * made at, and the chunks (and their versions) it was made from.
+	 */
+	private SolidMap snapshot;
+	private int snapshotChanges;
+	private Chunk[] snapshotChunks;
+	private int[] snapshotVersions;
+
+	/**
+	 * Helper constructor.
+	 */
+	private ChunkMap(int width, int height, LevelFile source, boolean remote,
+			int capacity) {
+		this.width = width;
+		this.height = height;
+		chunksWide = (width + Chunk.MASK) >> Chunk.SHIFT;
+		chunksHigh = (height + Chunk.MASK) >> Chunk.SHIFT;
+		chunks = new Chunk[chunksWide * chunksHigh];
+		this.source = source;
+		this.remote = remote;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Makes a map with every chunk loaded.
+	 *
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @param tiles
+	 *            IDs of the tiles, row by row.
+	 * @return The map.
+	 */
+	public static ChunkMap of(int width, int height, byte[] tiles) {
+		final ChunkMap map = new ChunkMap(width, height, null, false,
+				Integer.MAX_VALUE);
+		for (int cy = 0; cy < map.chunksHigh; cy++) {
+			for (int cx = 0; cx < map.chunksWide; cx++) {
+				map.put(slice(width, height, tiles, cx, cy));
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Makes a map that reads chunks from a chunked {@link LevelFile} when
+	 * they are needed.
+	 *
+	 * @param source
+	 *            The file.
+	 * @return The map.
+	 */
+	public static ChunkMap lazy(LevelFile source) {
+		return new ChunkMap(source.width, source.height, source, false,
+				CAPACITY);
+	}
+
+	/**
+	 * Makes an empty map that is filled by a server with
+	 * {@link ChunkMap#put(Chunk)}.
+	 *
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @return The map.
+	 */
+	public static ChunkMap remote(int width, int height) {
+		return new ChunkMap(width, height, null, true, CAPACITY);
+	}
+
+	/**
+	 * Cuts a chunk out of a full array of tiles.
+	 *
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @param tiles
+	 *            IDs of the tiles, row by row.
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @return The chunk.
+	 */
+	public static Chunk slice(int width, int height, byte[] tiles, int cx,
+			int cy) {
+		final Chunk chunk = new Chunk(cx, cy);
+		final int x0 = cx << Chunk.SHIFT;
+		final int y0 = cy << Chunk.SHIFT;
+		final int w = Math.min(Chunk.SIZE, width - x0);
+		final int h = Math.min(Chunk.SIZE, height - y0);
+		for (int y = 0; y < h; y++) {
+			chunk.fillRow(0, y, tiles, x0 + ((y0 + y) * width), w);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Checks if chunks are loaded and thrown away while the level is used,
+	 * instead of all being in memory.
+	 *
+	 * @return <code>True</code> for chunked files and server levels.
+	 */
+	public boolean isStreamed() {
+		return (source != null) || remote;
+	}
+
+	/**
+	 * Checks if chunks come from a server.
+	 *
+	 * @return <code>True</code> if they do.
+	 */
+	public boolean isRemote() {
+		return remote;
+	}
+
+	/**
+	 * Gets a chunk, reading it from the file if needed. The chunk counts as
+	 * used, see {@link ChunkMap#tick()}.
+	 *
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @return The chunk, or <code>null</code> if it is outside of the level
+	 *         or not here yet.
+	 */
+	public Chunk getChunk(int cx, int cy) {
+		if ((cx < 0) || (cx >= chunksWide) || (cy < 0) || (cy >= chunksHigh)) {
+			return null;
+		}
+		final Chunk chunk = chunks[cx + (cy * chunksWide)];
+		if (chunk != null) {
+			chunk.lastUsed = clock;
+			return chunk;
+		}
+		return source == null ? null : load(cx, cy);
+	}
+
+	/**
+	 * Checks if a chunk is loaded, without loading it.
+	 *
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @return <code>True</code> if it is.
+	 */
+	public boolean isLoaded(int cx, int cy) {
+		return (cx >= 0) && (cx < chunksWide) && (cy >= 0)
+				&& (cy < chunksHigh) && (chunks[cx + (cy * chunksWide)] != null);
+	}
+
+	/**
+	 * Helper method that reads a chunk from the file.
+	 */
+	private Chunk load(int cx, int cy) {
+		try {
+			final Chunk chunk = source.readChunk(cx, cy);
+			put(chunk);
+			return chunk;
+		} catch (final Exception e) {
+			Debug.out(Type.SEVERE, CLASS, "Failed to load chunk " + cx + ","
+					+ cy + ": " + e.getMessage());
+			// Keeps the level going, and stops it from trying every tick.
+			final Chunk chunk = new Chunk(cx, cy);
+			put(chunk);
+			return chunk;
+		}
+	}
+
+	/**
+	 * Puts a chunk in the map, replacing the one at the same place.
+	 *
+	 * @param chunk
+	 *            The chunk.
+	 */
+	public void put(Chunk chunk) {
+		final int i = chunk.cx + (chunk.cy * chunksWide);
+		if (chunks[i] == null) {
+			loaded++;
+		}
+		chunk.lastUsed = clock;
+		chunks[i] = chunk;
+		changes++;
+	}
+
+	/**
+	 * Gets the ID of a tile.
+	 *
+	 * @param x
+	 *            X of the tile.
+	 * @param y
+	 *            Y of the tile.
+	 * @return ID of the tile, or the ID of {@link Tile#VOID} outside of the
+	 *         level or in a chunk that is not here.
+	 */
+	public byte getTile(int x, int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return Tile.VOID.getId();
+		}
+		final Chunk chunk = getChunk(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+		if (chunk == null) {
+			return Tile.VOID.getId();
+		}
+		return chunk.getTile(x & Chunk.MASK, y & Chunk.MASK);
+	}
+
+	/**
+	 * Checks if a tile is solid.
+	 *
+	 * @param x
+	 *            X of the tile.
+	 * @param y
+	 *            Y of the tile.
+	 * @return <code>True</code> if solid. Tiles outside of the level and in
+	 *         chunks that are not here are solid.
+	 */
+	public boolean isSolid(int x, int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return true;
+		}
+		final Chunk chunk = getChunk(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+		return (chunk == null) || chunk.isSolid(x & Chunk.MASK, y & Chunk.MASK);
+	}
+
+	/**
+	 * Changes a tile.
+	 *
+	 * @param x
+	 *            X of the tile.
+	 * @param y
+	 *            Y of the tile.
+	 * @param tile
+	 *            The new {@link Tile}.
+	 * @return The chunk that changed, or <code>null</code> if the tile is not
+	 *         here.
+	 */
+	public Chunk setTile(int x, int y, Tile tile) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return null;
+		}
+		final Chunk chunk = getChunk(x >> Chunk.SHIFT, y >> Chunk.SHIFT);
+		if (chunk != null) {
+			chunk.setTile(x & Chunk.MASK, y & Chunk.MASK, tile);
+			changes++;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Tells the map that tiles of a chunk were changed without
+	 * {@link ChunkMap#setTile(int, int, Tile)}, like by a {@link TileDelta}.
+	 */
+	void changed() {
+		changes++;
+	}
+
+	/**
+	 * Makes a copy of which tiles are solid that any thread may use. Only
+	 * chunks that changed since the last copy are copied again. Chunks that
+	 * were thrown away keep the tiles they had.
+	 *
+	 * @return The copy.
+	 */
+	public SolidMap snapshot() {
+		if ((snapshot != null) && (snapshotChanges == changes)) {
+			return snapshot;
+		}
+		if (snapshot == null) {
+			snapshotChunks = new Chunk[chunks.length];
+			snapshotVersions = new int[chunks.length];
+		}
+		final int[][] rows = new int[chunks.length][];
+		final int[][] columns = new int[chunks.length][];
+		for (int i = 0; i < chunks.length; i++) {
+			final Chunk chunk = chunks[i];
+			if (chunk == null) {
+				// Lets thrown away chunks be collected.
+				snapshotChunks[i] = null;
+			}
+			if ((chunk == null) || ((snapshotChunks[i] == chunk)
+					&& (snapshotVersions[i] == chunk.getVersion()))) {
+				if (snapshot != null) {
+					rows[i] = snapshot.getRows(i);
+					columns[i] = snapshot.getColumns(i);
+				}
+			} else {
+				rows[i] = chunk.copySolidRows();
+				columns[i] = SolidMap.toColumns(rows[i]);
+				snapshotChunks[i] = chunk;
+				snapshotVersions[i] = chunk.getVersion();
+			}
+		}
+		snapshot = new SolidMap(width, height, chunksWide, chunksHigh, rows,
+				columns, SNAPSHOTS.incrementAndGet());
+		snapshotChanges = changes;
+		return snapshot;
+	}
+
+	/**
+	 * Moves the clock forward, and throws away the chunks used the longest
+	 * time ago if there are too many.
+	 */
+	public void tick() {
+		clock++;
+		if (loaded <= capacity) {
+			return;
+		}
+		final List<Chunk> old = new ArrayList<>(loaded);
+		for (final Chunk chunk : chunks) {
+			if ((chunk != null) && (remote || !chunk.isDirty())
+					&& (chunk.lastUsed < clock - 1)) {
+				old.add(chunk);
+			}
+		}
+		Collections.sort(old, LEAST_RECENT);
+		// Goes a bit under, so this does not happen again next tick.
+		final int target = capacity - (capacity >> 2);
+		for (int i = 0; (i < old.size()) && (loaded > target); i++) {
+			final Chunk chunk = old.get(i);
+			chunks[chunk.cx + (chunk.cy * chunksWide)] = null;
+			loaded--;
+		}
+		Debug.out(Type.DEBUG, CLASS, "Dropped old chunks, " + loaded
+				+ " left.");
+	}
+
+	/**
+	 * Gets how many chunks are loaded.
+	 *
+	 * @return Amount of chunks.
+	 */
+	public int getLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Copies every tile into one array, loading every chunk. Only meant for
+	 * levels that are small enough to be in memory at once.
+	 *
+	 * @return IDs of the tiles, row by row.
+	 */
+	public byte[] toArray() {
+		final byte[] tiles = new byte[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				tiles[x + (y * width)] = getTile(x, y);
+			}
+		}
+		return tiles;
+	}
+}
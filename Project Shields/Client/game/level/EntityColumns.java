@@ -0,0 +1,205 @@
+package game.level;
+
+import game.entities.Bullet;
+import game.entities.Entity;
+import game.entities.Landmine;
+import game.entities.Player;
+
+import java.util.Arrays;
+
+/**
+ * {@link EntityColumns} keep the state the {@link EntitySystems} need about
+ * every {@link Entity} of an {@link EntityStore} in plain arrays, one array per
+ * value. Row <code>i</code> always belongs to the {@link Entity} in slot
+ * <code>i</code> of the store, and rows are moved around the same way the
+ * store moves its slots.
+ *
+ * @author AJ Walter
+ * @see EntitySystems
+ */
+public class EntityColumns {
+
+	/**
+	 * Kinds of entities the systems know about.
+	 */
+	public static final byte TYPE_OTHER = 0, TYPE_PLAYER = 1, TYPE_BULLET = 2,
+			TYPE_MINE = 3;
+
+	/**
+	 * Teams.
+	 */
+	public static final byte TEAM_NONE = 0, TEAM_GREEN = 1, TEAM_RED = 2;
+
+	/**
+	 * Bits of {@link EntityColumns#flags}.
+	 * <p>
+	 * <b>FLAG_DEAD</b> - The {@link Entity} is marked for delete.
+	 * </p>
+	 * <p>
+	 * <b>FLAG_IMMUNE</b> - The bullet or mine can not hurt the player.
+	 * </p>
+	 * <p>
+	 * <b>FLAG_LOCAL</b> - The player is the one playing on this computer.
+	 * </p>
+	 * <p>
+	 * <b>FLAG_BLOCKED</b> - The bullet ran into a wall this tick.
+	 * </p>
+	 */
+	public static final int FLAG_DEAD = 1, FLAG_IMMUNE = 2, FLAG_LOCAL = 4,
+			FLAG_BLOCKED = 8;
+
+	/**
+	 * Position now and at the start of the tick.
+	 */
+	public int[] x, y, lastX, lastY;
+
+	/**
+	 * Health of players.
+	 */
+	public int[] health;
+
+	/**
+	 * Bits of {@link EntityColumns#FLAG_DEAD} and friends.
+	 */
+	public int[] flags;
+
+	/**
+	 * One of the TYPE and TEAM constants.
+	 */
+	public byte[] type, team;
+
+	/**
+	 * Direction bullets are flying in: 0 to 3 for up, down, left and right,
+	 * or 4 for a bullet that does not move.
+	 */
+	public byte[] dir;
+
+	/**
+	 * The {@link Entity} of every row.
+	 */
+	public Entity[] refs;
+
+	/**
+	 * Amount of rows used.
+	 */
+	public int size = 0;
+
+	/**
+	 * Creates empty columns.
+	 */
+	public EntityColumns() {
+		resize(64);
+	}
+
+	/**
+	 * Adds a row for an {@link Entity} to the end.
+	 *
+	 * @param e
+	 *            {@link Entity} added.
+	 */
+	public void add(Entity e) {
+		if (size == refs.length) {
+			resize(size * 2);
+		}
+		final int i = size++;
+		refs[i] = e;
+		x[i] = lastX[i] = e.x;
+		y[i] = lastY[i] = e.y;
+		health[i] = 0;
+		flags[i] = e.isMarkedForDelete() ? FLAG_DEAD : 0;
+		team[i] = TEAM_NONE;
+		dir[i] = 0;
+		if (e instanceof Bullet) {
+			type[i] = TYPE_BULLET;
+			final int d = ((Bullet) e).getDirection();
+			dir[i] = (byte) ((d >= 0) && (d < 4) ? d : 4);
+			if (((Bullet) e).isImmune()) {
+				flags[i] |= FLAG_IMMUNE;
+			}
+		} else if (e instanceof Landmine) {
+			type[i] = TYPE_MINE;
+			team[i] = team(((Landmine) e).getTeam());
+			if (((Landmine) e).isImmune()) {
+				flags[i] |= FLAG_IMMUNE;
+			}
+		} else if (e instanceof Player) {
+			type[i] = TYPE_PLAYER;
+			team[i] = team(((Player) e).getTeam());
+			health[i] = ((Player) e).getHealth();
+			if (((Player) e).isLocal()) {
+				flags[i] |= FLAG_LOCAL;
+			}
+		} else {
+			type[i] = TYPE_OTHER;
+		}
+	}
+
+	/**
+	 * Empties a row by moving the last row into it.
+	 *
+	 * @param i
+	 *            Row to empty.
+	 */
+	public void remove(int i) {
+		final int last = --size;
+		refs[i] = refs[last];
+		x[i] = x[last];
+		y[i] = y[last];
+		lastX[i] = lastX[last];
+		lastY[i] = lastY[last];
+		health[i] = health[last];
+		flags[i] = flags[last];
+		type[i] = type[last];
+		team[i] = team[last];
+		dir[i] = dir[last];
+		refs[last] = null;
+	}
+
+	/**
+	 * Sets {@link EntityColumns#FLAG_DEAD} on a row.
+	 *
+	 * @param i
+	 *            Row of the {@link Entity} that was marked for delete.
+	 */
+	public void kill(int i) {
+		flags[i] |= FLAG_DEAD;
+	}
+
+	/**
+	 * Empties every row.
+	 */
+	public void clear() {
+		Arrays.fill(refs, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Helper method that grows every column.
+	 */
+	private void resize(int length) {
+		refs = refs == null ? new Entity[length] : Arrays.copyOf(refs, length);
+		x = x == null ? new int[length] : Arrays.copyOf(x, length);
+		y = y == null ? new int[length] : Arrays.copyOf(y, length);
+		lastX = lastX == null ? new int[length] : Arrays.copyOf(lastX, length);
+		lastY = lastY == null ? new int[length] : Arrays.copyOf(lastY, length);
+		health = health == null ? new int[length] : Arrays
+				.copyOf(health, length);
+		flags = flags == null ? new int[length] : Arrays.copyOf(flags, length);
+		type = type == null ? new byte[length] : Arrays.copyOf(type, length);
+		team = team == null ? new byte[length] : Arrays.copyOf(team, length);
+		dir = dir == null ? new byte[length] : Arrays.copyOf(dir, length);
+	}
+
+	/**
+	 * Helper method that turns a team name into a team constant.
+	 */
+	private static byte team(String team) {
+		if ("GREEN".equals(team)) {
+			return TEAM_GREEN;
+		}
+		if ("RED".equals(team)) {
+			return TEAM_RED;
+		}
+		return TEAM_NONE;
+	}
+}
@@ -0,0 +1,192 @@
+package game.level;
+
+import game.entities.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link EntityGrid} splits the world into square cells and remembers which
+ * {@link Entity}s are in each cell. The cells are hashed into a fixed amount of
+ * buckets, so the grid works for a level of any size (and for entities that
+ * wander outside of it). Asking for everything inside of a rectangle only
+ * looks at the cells the rectangle covers, instead of every entity in the
+ * {@link Level}.
+ *
+ * @author AJ Walter
+ */
+public class EntityGrid {
+
+	/**
+	 * Cells are 1 << CELL_SHIFT pixels wide (4 tiles).
+	 */
+	public static final int CELL_SHIFT = 7;
+
+	/**
+	 * Amount of buckets the cells are hashed into. Must be a power of 2.
+	 */
+	public static final int BUCKETS = 1024, BUCKET_MASK = BUCKETS - 1;
+
+	/**
+	 * Cell of an {@link Entity} that is not in a grid.
+	 */
+	public static final int NO_CELL = Integer.MIN_VALUE;
+
+	/**
+	 * The buckets. Entities are only ever in the bucket of their own cell.
+	 */
+	private final List<Entity>[] buckets;
+
+	/**
+	 * Creates an empty grid.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public EntityGrid() {
+		buckets = new List[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new ArrayList<>(4);
+		}
+	}
+
+	/**
+	 * Files an {@link Entity} under the cell of its current position.
+	 *
+	 * @param e
+	 *            {@link Entity} to add.
+	 */
+	public void add(Entity e) {
+		final int cellX = e.x >> CELL_SHIFT;
+		final int cellY = e.y >> CELL_SHIFT;
+		e.setGridCell(cellX, cellY);
+		buckets[bucket(cellX, cellY)].add(e);
+	}
+
+	/**
+	 * Takes an {@link Entity} out of the grid.
+	 *
+	 * @param e
+	 *            {@link Entity} to remove.
+	 */
+	public void remove(Entity e) {
+		if (e.getGridX() == NO_CELL) {
+			return;
+		}
+		buckets[bucket(e.getGridX(), e.getGridY())].remove(e);
+		e.setGridCell(NO_CELL, NO_CELL);
+	}
+
+	/**
+	 * Moves an {@link Entity} to a new cell if it has left its old one.
+	 * Entities that are not in the grid are left out of it.
+	 *
+	 * @param e
+	 *            {@link Entity} that may have moved.
+	 */
+	public void update(Entity e) {
+		if (e.getGridX() == NO_CELL) {
+			return;
+		}
+		if (((e.x >> CELL_SHIFT) != e.getGridX())
+				|| ((e.y >> CELL_SHIFT) != e.getGridY())) {
+			remove(e);
+			add(e);
+		}
+	}
+
+	/**
+	 * Empties the grid.
+	 */
+	public void clear() {
+		for (final List<Entity> bucket : buckets) {
+			for (int i = 0; i < bucket.size(); i++) {
+				bucket.get(i).setGridCell(NO_CELL, NO_CELL);
+			}
+			bucket.clear();
+		}
+	}
+
+	/**
+	 * Finds every {@link Entity} whose position is within a distance of a
+	 * point on both axes.
+	 *
+	 * @param x
+	 *            X of the point in pixels.
+	 * @param y
+	 *            Y of the point in pixels.
+	 * @param range
+	 *            Distance in pixels (inclusive).
+	 * @param out
+	 *            List the found entities are added to. It is not cleared.
+	 */
+	public void queryRange(int x, int y, int range, List<Entity> out) {
+		query(x - range, y - range, x + range, y + range, out);
+	}
+
+	/**
+	 * Finds every {@link Entity} whose position is inside of a rectangle.
+	 *
+	 * @param x0
+	 *            Left edge in pixels.
+	 * @param y0
+	 *            Top edge in pixels.
+	 * @param x1
+	 *            Right edge in pixels (inclusive).
+	 * @param y1
+	 *            Bottom edge in pixels (inclusive).
+	 * @param out
+	 *            List the found entities are added to. It is not cleared.
+	 */
+	public void query(int x0, int y0, int x1, int y1, List<Entity> out) {
+		final int cx0 = x0 >> CELL_SHIFT;
+		final int cy0 = y0 >> CELL_SHIFT;
+		final int cx1 = x1 >> CELL_SHIFT;
+		final int cy1 = y1 >> CELL_SHIFT;
+		if ((((long) (cx1 - cx0) + 1) * ((cy1 - cy0) + 1)) >= BUCKETS) {
+			// Covers more cells than there are buckets, just look at all.
+			for (final List<Entity> bucket : buckets) {
+				collect(bucket, x0, y0, x1, y1, out);
+			}
+			return;
+		}
+		for (int cy = cy0; cy <= cy1; cy++) {
+			for (int cx = cx0; cx <= cx1; cx++) {
+				final List<Entity> bucket = buckets[bucket(cx, cy)];
+				for (int i = 0; i < bucket.size(); i++) {
+					final Entity e = bucket.get(i);
+					// Other cells can share this bucket, only take our own.
+					if ((e.getGridX() == cx) && (e.getGridY() == cy)
+							&& (e.x >= x0) && (e.x <= x1) && (e.y >= y0)
+							&& (e.y <= y1)) {
+						out.add(e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that adds everything in a bucket inside of a rectangle.
+	 */
+	private void collect(List<Entity> bucket, int x0, int y0, int x1, int y1,
+			List<Entity> out) {
+		for (int i = 0; i < bucket.size(); i++) {
+			final Entity e = bucket.get(i);
+			if ((e.x >= x0) && (e.x <= x1) && (e.y >= y0) && (e.y <= y1)) {
+				out.add(e);
+			}
+		}
+	}
+
+	/**
+	 * Hashes a cell into a bucket.
+	 *
+	 * @param cellX
+	 *            X of the cell.
+	 * @param cellY
+	 *            Y of the cell.
+	 * @return Index of the bucket.
+	 */
+	private static int bucket(int cellX, int cellY) {
+		return ((cellX * 73856093) ^ (cellY * 19349663)) & BUCKET_MASK;
+	}
+}
@@ -0,0 +1,154 @@
+package game.level;
+
+import game.entities.Entity;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * An {@link EntityStore} is the list of entities in a {@link Level}. Every
+ * {@link Entity} remembers the slot it is kept in, so taking one out does not
+ * need to look for it: the last {@link Entity} is moved into the empty slot
+ * instead of shifting everything down. Because of that, the order of the list
+ * changes when something is removed. The order entities are drawn in is kept
+ * by their render layer and render order, not by their place in this list.
+ *
+ * @author AJ Walter
+ */
+public class EntityStore extends AbstractList<Entity> {
+
+	/**
+	 * Slot of an {@link Entity} that is not in a store.
+	 */
+	public static final int NO_SLOT = -1;
+
+	/**
+	 * The slots. Only the first {@link EntityStore#size} are used.
+	 */
+	private Entity[] slots = new Entity[64];
+	private int size = 0;
+
+	/**
+	 * Columns kept in the same order as the slots, or <code>null</code>.
+	 */
+	private EntityColumns columns;
+
+	/**
+	 * Keeps a set of {@link EntityColumns} in step with the slots. The
+	 * columns are filled with the entities already in the store.
+	 *
+	 * @param columns
+	 *            {@link EntityColumns} to keep, or <code>null</code> for none.
+	 */
+	public void setColumns(EntityColumns columns) {
+		this.columns = columns;
+		if (columns != null) {
+			columns.clear();
+			for (int i = 0; i < size; i++) {
+				columns.add(slots[i]);
+			}
+		}
+	}
+
+	@Override
+	public Entity get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+		return slots[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds an {@link Entity} to the end of the store.
+	 *
+	 * @param e
+	 *            {@link Entity} to add.
+	 * @return <code>True</code>.
+	 */
+	@Override
+	public boolean add(Entity e) {
+		if (size == slots.length) {
+			slots = Arrays.copyOf(slots, size * 2);
+		}
+		e.setSlot(size);
+		slots[size++] = e;
+		if (columns != null) {
+			columns.add(e);
+		}
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Takes the {@link Entity} out of a slot. The last {@link Entity} is moved
+	 * into the slot.
+	 *
+	 * @param index
+	 *            Slot to empty.
+	 * @return The {@link Entity} that was removed.
+	 */
+	@Override
+	public Entity remove(int index) {
+		final Entity e = get(index);
+		final Entity last = slots[--size];
+		slots[index] = last;
+		last.setSlot(index);
+		slots[size] = null;
+		e.setSlot(NO_SLOT);
+		if (columns != null) {
+			columns.remove(index);
+		}
+		modCount++;
+		return e;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		final int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (o instanceof Entity) {
+			final int slot = ((Entity) o).getSlot();
+			if ((slot >= 0) && (slot < size) && (slots[slot] == o)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			slots[i].setSlot(NO_SLOT);
+			slots[i] = null;
+		}
+		size = 0;
+		if (columns != null) {
+			columns.clear();
+		}
+		modCount++;
+	}
+}
@@ -0,0 +1,416 @@
+package game.level;
+
+import game.entities.Bullet;
+import game.entities.Entity;
+import game.entities.Landmine;
+import game.entities.Player;
+import game.utils.Workers;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * {@link EntitySystems} tick bullets and landmines for a {@link Level} with
+ * loops over {@link EntityColumns} instead of calling
+ * {@link Entity#tick()} on every one of them. A tick runs in phases, each
+ * one pass over the arrays:
+ * <p>
+ * <b>Pull</b> - Copies the players, which move on their own, into the
+ * columns.
+ * </p>
+ * <p>
+ * <b>Move</b> - Sweeps every bullet along its path and stops it at walls.
+ * </p>
+ * <p>
+ * <b>Collide</b> - Checks every bullet path and every landmine against the
+ * local players, and writes down the hits.
+ * </p>
+ * <p>
+ * <b>Events</b> - Sends the hits written down by the collide phase.
+ * </p>
+ * <p>
+ * <b>Push</b> - Copies the new positions of the bullets that stopped or
+ * moved to another cell of the {@link EntityGrid} back to the entities. The
+ * rest only get theirs when they are rendered, see
+ * {@link EntitySystems#sync(Entity)}.
+ * </p>
+ * Only the local players can be hurt on this computer, and there is usually
+ * just one of them, so the collide step stays linear in the amount of bullets
+ * and landmines.
+ * <p>
+ * The move and collide phases only change the row they are looking at, so
+ * they are split into {@link EntitySystems#PARTITION}s of rows that may run
+ * on the {@link Workers#POOL} at the same time. Hits are kept per partition
+ * and sent in partition order on the ticking thread, so a tick turns out
+ * the same with any amount of threads.
+ * </p>
+ *
+ * @author AJ Walter
+ * @see EntityColumns
+ */
+public class EntitySystems {
+
+	/**
+	 * Steps a bullet takes in each direction (up, down, left, right, and
+	 * anything else, which does not move).
+	 */
+	private static final int[] DIR_X = { 0, 0, -1, 1, 0 },
+			DIR_Y = { -1, 1, 0, 0, 0 };
+
+	/**
+	 * Rows in one partition. Partitions are cut by row, never by thread, so
+	 * the same rows always end up together no matter how many threads there
+	 * are.
+	 */
+	public static final int PARTITION = 2048;
+
+	/**
+	 * Phases that run over partitions.
+	 */
+	private static final int PHASE_MOVE = 0, PHASE_COLLIDE = 1;
+
+	private final Level level;
+	private final EntityColumns cols;
+
+	/**
+	 * Which tiles are solid, taken once at the start of the tick so the
+	 * move phase never touches the {@link ChunkMap} from other threads.
+	 */
+	private SolidMap solid;
+
+	/**
+	 * Hits found by each partition in the collide phase, as pairs of the row
+	 * of the bullet or landmine and the row of the player.
+	 */
+	private int[][] events = new int[0][];
+	private int[] eventCounts = new int[0];
+
+	/**
+	 * Rows of the local players found by the pull step.
+	 */
+	private int[] locals = new int[4];
+	private int localCount = 0;
+
+	/**
+	 * Creates the systems for a level.
+	 *
+	 * @param level
+	 *            {@link Level} the entities are in.
+	 * @param cols
+	 *            {@link EntityColumns} of the entities of the level.
+	 */
+	public EntitySystems(Level level, EntityColumns cols) {
+		this.level = level;
+		this.cols = cols;
+	}
+
+	/**
+	 * Checks if the {@link Entity} in a slot is ticked by the systems, so the
+	 * {@link Level} does not need to tick it itself.
+	 *
+	 * @param slot
+	 *            Slot of the {@link Entity} in the {@link EntityStore}.
+	 * @return <code>True</code> for bullets and landmines.
+	 */
+	public boolean handles(int slot) {
+		final byte type = cols.type[slot];
+		return (type == EntityColumns.TYPE_BULLET)
+				|| (type == EntityColumns.TYPE_MINE);
+	}
+
+	/**
+	 * Ticks every bullet and landmine once.
+	 */
+	public void tick() {
+		pull();
+		solid = level.snapshot();
+		runPhase(PHASE_MOVE);
+		if (localCount > 0) {
+			prepareEvents();
+			runPhase(PHASE_COLLIDE);
+			emitEvents();
+		}
+		push();
+	}
+
+	/**
+	 * Copies the position of an {@link Entity} from the columns to the
+	 * {@link Entity}. Needed before anything looks at the exact position of a
+	 * bullet.
+	 *
+	 * @param e
+	 *            {@link Entity} in the level.
+	 */
+	public void sync(Entity e) {
+		final int i = e.getSlot();
+		if ((i != EntityStore.NO_SLOT)
+				&& (cols.type[i] == EntityColumns.TYPE_BULLET)) {
+			e.x = cols.x[i];
+			e.y = cols.y[i];
+		}
+	}
+
+	/**
+	 * Helper method that copies the state of the players into the columns.
+	 * Bullets and landmines are only changed by the systems and by
+	 * {@link EntityColumns#kill(int)}, so they are not looked at.
+	 */
+	private void pull() {
+		final int[] x = cols.x, y = cols.y, flags = cols.flags;
+		final byte[] type = cols.type;
+		final Entity[] refs = cols.refs;
+		localCount = 0;
+		for (int i = 0; i < cols.size; i++) {
+			if (type[i] == EntityColumns.TYPE_PLAYER) {
+				final Entity e = refs[i];
+				if (e.isMarkedForDelete()) {
+					flags[i] |= EntityColumns.FLAG_DEAD;
+				}
+				x[i] = e.x;
+				y[i] = e.y;
+				cols.health[i] = ((Player) e).getHealth();
+				if (((flags[i] & EntityColumns.FLAG_LOCAL) != 0)
+						&& ((flags[i] & EntityColumns.FLAG_DEAD) == 0)) {
+					if (localCount == locals.length) {
+						locals = Arrays.copyOf(locals, localCount * 2);
+					}
+					locals[localCount++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that runs a phase over every partition, on the
+	 * {@link Workers#POOL} if there is one and more than one partition.
+	 */
+	private void runPhase(int phase) {
+		final int parts = (cols.size + PARTITION - 1) / PARTITION;
+		if ((Workers.POOL == null) || (parts <= 1)) {
+			for (int p = 0; p < parts; p++) {
+				runPartition(phase, p);
+			}
+		} else {
+			Workers.POOL.invoke(new PhaseTask(phase, 0, parts));
+		}
+	}
+
+	/**
+	 * Helper method that runs a phase over the rows of one partition.
+	 */
+	private void runPartition(int phase, int part) {
+		final int from = part * PARTITION;
+		final int to = Math.min(cols.size, from + PARTITION);
+		if (phase == PHASE_MOVE) {
+			moveBullets(from, to);
+		} else {
+			eventCounts[part] = 0;
+			collideBullets(part, from, to);
+			triggerMines(part, from, to);
+		}
+	}
+
+	/**
+	 * Helper method that moves every live bullet in a range of rows.
+	 */
+	private void moveBullets(int from, int to) {
+		final int[] x = cols.x, y = cols.y, flags = cols.flags;
+		final int[] lastX = cols.lastX, lastY = cols.lastY;
+		final byte[] type = cols.type, dir = cols.dir;
+		for (int i = from; i < to; i++) {
+			if ((type[i] != EntityColumns.TYPE_BULLET)
+					|| ((flags[i] & EntityColumns.FLAG_DEAD) != 0)) {
+				continue;
+			}
+			lastX[i] = x[i];
+			lastY[i] = y[i];
+			final int dx = DIR_X[dir[i]] * Bullet.SPEED;
+			final int dy = DIR_Y[dir[i]] * Bullet.SPEED;
+			// Most steps stay inside the tiles the bullet is already in, so
+			// there is nothing new to run into.
+			final int step = dx + dy;
+			final int lead = (dx != 0 ? x[i] : y[i])
+					+ (step > 0 ? Bullet.SIZE : 0);
+			if ((lead >> 5) == ((lead + step) >> 5)) {
+				x[i] += dx;
+				y[i] += dy;
+				continue;
+			}
+			final double clear = solid.sweepBox(x[i], y[i], x[i]
+					+ Bullet.SIZE, y[i] + Bullet.SIZE, dx, dy);
+			if (clear < 1) {
+				flags[i] |= EntityColumns.FLAG_BLOCKED;
+			}
+			x[i] += Bullet.travelled(dx, clear);
+			y[i] += Bullet.travelled(dy, clear);
+		}
+	}
+
+	/**
+	 * Helper method that checks the path of every bullet in a range of rows
+	 * against the local players. Uses the same area as {@link Bullet#tick()}.
+	 */
+	private void collideBullets(int part, int from, int to) {
+		final int[] x = cols.x, y = cols.y, flags = cols.flags;
+		final int[] lastX = cols.lastX, lastY = cols.lastY;
+		final byte[] type = cols.type;
+		final int skip = EntityColumns.FLAG_IMMUNE | EntityColumns.FLAG_DEAD;
+		for (int i = from; i < to; i++) {
+			if ((type[i] != EntityColumns.TYPE_BULLET)
+					|| ((flags[i] & skip) != 0)) {
+				continue;
+			}
+			for (int l = 0; l < localCount; l++) {
+				final int p = locals[l];
+				if (Bullet.crosses(lastX[i], lastY[i], x[i], y[i], x[p] - 15,
+						y[p] - 15, x[p] + 46, y[p] + 46)) {
+					flags[i] |= EntityColumns.FLAG_IMMUNE;
+					addEvent(part, i, p);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that finds every landmine in a range of rows that a local
+	 * player is on. Uses the same area as {@link Landmine#tick()}.
+	 */
+	private void triggerMines(int part, int from, int to) {
+		final int[] x = cols.x, y = cols.y, flags = cols.flags;
+		final byte[] type = cols.type;
+		final int skip = EntityColumns.FLAG_IMMUNE | EntityColumns.FLAG_DEAD;
+		for (int i = from; i < to; i++) {
+			if ((type[i] != EntityColumns.TYPE_MINE)
+					|| ((flags[i] & skip) != 0)) {
+				continue;
+			}
+			for (int l = 0; l < localCount; l++) {
+				final int p = locals[l];
+				if ((x[i] >= (x[p] - 31)) && (x[i] < (x[p] + 31))
+						&& (y[i] >= (y[p] - 31)) && (y[i] < (y[p] + 31))) {
+					flags[i] |= EntityColumns.FLAG_IMMUNE;
+					addEvent(part, i, p);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that remembers that the bullet or landmine in a row hit
+	 * the player in another row. Only the task running the partition touches
+	 * its buffer.
+	 */
+	private void addEvent(int part, int row, int player) {
+		int[] buffer = events[part];
+		final int at = eventCounts[part];
+		if (at + 2 > buffer.length) {
+			buffer = events[part] = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		buffer[at] = row;
+		buffer[at + 1] = player;
+		eventCounts[part] = at + 2;
+	}
+
+	/**
+	 * Helper method that makes sure there is an event buffer for every
+	 * partition.
+	 */
+	private void prepareEvents() {
+		final int parts = (cols.size + PARTITION - 1) / PARTITION;
+		if (events.length < parts) {
+			final int old = events.length;
+			events = Arrays.copyOf(events, parts);
+			eventCounts = Arrays.copyOf(eventCounts, parts);
+			for (int p = old; p < parts; p++) {
+				events[p] = new int[16];
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sends the hits found by the collision phase, one
+	 * partition after another and in row order inside of each, so the order
+	 * does not depend on which thread finished first.
+	 */
+	private void emitEvents() {
+		final int parts = (cols.size + PARTITION - 1) / PARTITION;
+		for (int part = 0; part < parts; part++) {
+			final int[] buffer = events[part];
+			for (int i = 0; i < eventCounts[part]; i += 2) {
+				final Entity e = cols.refs[buffer[i]];
+				final Player p = (Player) cols.refs[buffer[i + 1]];
+				if (e instanceof Bullet) {
+					((Bullet) e).hit(p);
+				} else {
+					((Landmine) e).trigger(p);
+				}
+			}
+			eventCounts[part] = 0;
+		}
+	}
+
+	/**
+	 * Runs one phase over a run of partitions, splitting it in half until
+	 * only one partition is left.
+	 */
+	private class PhaseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int phase, first, last;
+
+		PhaseTask(int phase, int first, int last) {
+			this.phase = phase;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if ((last - first) <= 1) {
+				runPartition(phase, first);
+				return;
+			}
+			final int middle = (first + last) >>> 1;
+			invokeAll(new PhaseTask(phase, first, middle), new PhaseTask(
+					phase, middle, last));
+		}
+	}
+
+	/**
+	 * Helper method that gives the bullets that stopped or changed cells
+	 * their new positions.
+	 */
+	private void push() {
+		final int[] x = cols.x, y = cols.y, flags = cols.flags;
+		final int[] lastX = cols.lastX, lastY = cols.lastY;
+		final byte[] type = cols.type;
+		final Entity[] refs = cols.refs;
+		for (int i = 0; i < cols.size; i++) {
+			if (type[i] != EntityColumns.TYPE_BULLET) {
+				continue;
+			}
+			final Entity e = refs[i];
+			if ((flags[i] & EntityColumns.FLAG_BLOCKED) != 0) {
+				flags[i] = (flags[i] & ~EntityColumns.FLAG_BLOCKED)
+						| EntityColumns.FLAG_DEAD;
+				e.markForDelete();
+				e.x = x[i];
+				e.y = y[i];
+			}
+			// The grid only needs to hear about it if the cell changed. Any
+			// other bullet is brought up to date when it is rendered.
+			final int shift = EntityGrid.CELL_SHIFT;
+			if (((x[i] >> shift) != (lastX[i] >> shift))
+					|| ((y[i] >> shift) != (lastY[i] >> shift))) {
+				e.x = x[i];
+				e.y = y[i];
+				level.moved(e);
+			}
+			lastX[i] = x[i];
+			lastY[i] = y[i];
+		}
+	}
+}
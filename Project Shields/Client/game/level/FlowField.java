@@ -0,0 +1,468 @@
+package game.level;
+
+import game.level.tiles.Tile;
+
+import java.util.Arrays;
+
+/**
+ * A {@link FlowField} tells anything on the level which way to go to reach
+ * one goal tile, like a flag base or a spawn. It holds how many steps every
+ * tile is from the goal (moving up, down, left or right) and the best of the
+ * eight directions to move in from every tile, so any amount of tanks can
+ * find their way with one lookup each.
+ * <p>
+ * The field is made once and then mended every time it is given a new
+ * {@link SolidMap}: only the tiles whose distance changed because of walls
+ * that were made or taken away are worked out again. Fields belong to the
+ * thread that ticks the level.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class FlowField {
+
+	/**
+	 * Most tiles a level may have to get flow fields, since a field keeps
+	 * about ten bytes for every tile.
+	 */
+	public static final int MAX_TILES = 1 << 20;
+
+	/**
+	 * Distance of tiles that are solid or can not reach the goal.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	/**
+	 * Direction of tiles that are the goal, solid, or can not reach the goal.
+	 */
+	public static final int NONE = -1;
+
+	/**
+	 * X and Y moves of the eight directions, going around from right.
+	 */
+	public static final int[] DX = { 1, 1, 0, -1, -1, -1, 0, 1 },
+			DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+	/**
+	 * The whole field is made again when more than one in REBUILD of the
+	 * tiles changed at once, like when a new level is loaded.
+	 */
+	private static final int REBUILD = 16;
+
+	/**
+	 * Marks used while finding the tiles cut off by a new wall.
+	 */
+	private static final byte QUEUED = 1, LOST = 2;
+
+	/**
+	 * Position of the goal, in {@link Tile}s.
+	 */
+	public final int goalX, goalY;
+
+	private int width, height;
+
+	/**
+	 * The map the field was last made or mended for.
+	 */
+	private SolidMap map;
+
+	/**
+	 * Which tiles are solid, one bit for each, as the field knows them.
+	 */
+	private long[] solid;
+
+	/**
+	 * Steps from every tile to the goal, and the direction to move in from
+	 * every tile.
+	 */
+	private int[] costs;
+	private byte[] directions;
+
+	/**
+	 * Work space of the flood fills, and the tiles a mend changed.
+	 */
+	private int[] queue;
+	private byte[] marks;
+	private long[] seeds = new long[64];
+	private int[] touched = new int[64];
+	private int touchedSize;
+
+	/**
+	 * Creates a field. It is made the first time it gets a map.
+	 *
+	 * @param goalX
+	 *            X of the goal, in {@link Tile}s.
+	 * @param goalY
+	 *            Y of the goal, in {@link Tile}s.
+	 */
+	public FlowField(int goalX, int goalY) {
+		this.goalX = goalX;
+		this.goalY = goalY;
+	}
+
+	/**
+	 * Brings the field up to date with a map. Does nothing if the map is the
+	 * one the field already has.
+	 *
+	 * @param map
+	 *            The map.
+	 * @throws IllegalArgumentException
+	 *             If the map has more than {@link FlowField#MAX_TILES} tiles.
+	 */
+	public void update(SolidMap map) {
+		if (map == this.map) {
+			return;
+		}
+		if ((this.map == null) || (map.width != width)
+				|| (map.height != height)) {
+			build(map);
+			return;
+		}
+		final int count = diff(this.map, map);
+		this.map = map;
+		if (count > ((width * height) / REBUILD)) {
+			build(map);
+			return;
+		}
+		// The changes are in touched, and are mended one at a time.
+		final int[] changed = Arrays.copyOf(touched, count);
+		touchedSize = 0;
+		for (int i = 0; i < count; i++) {
+			final int tile = changed[i];
+			if (map.isSolid(tile % width, tile / width)) {
+				close(tile);
+			} else {
+				open(tile);
+			}
+		}
+		for (int i = 0; i < touchedSize; i++) {
+			final int x = touched[i] % width;
+			final int y = touched[i] / width;
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					point(x + dx, y + dy);
+				}
+			}
+		}
+		touchedSize = 0;
+	}
+
+	/**
+	 * Gets how many steps a tile is from the goal.
+	 *
+	 * @param x
+	 *            X of the tile.
+	 * @param y
+	 *            Y of the tile.
+	 * @return The steps, or {@link FlowField#UNREACHABLE}.
+	 */
+	public int getCost(int x, int y) {
+		if ((costs == null) || !inside(x, y)) {
+			return UNREACHABLE;
+		}
+		return costs[x + (y * width)];
+	}
+
+	/**
+	 * Gets which way to move from a tile to get closer to the goal. Moves on
+	 * a slant are only given when both tiles beside them are open.
+	 *
+	 * @param x
+	 *            X of the tile.
+	 * @param y
+	 *            Y of the tile.
+	 * @return Index into {@link FlowField#DX} and {@link FlowField#DY}, or
+	 *         {@link FlowField#NONE}.
+	 */
+	public int getDirection(int x, int y) {
+		if ((directions == null) || !inside(x, y)) {
+			return NONE;
+		}
+		return directions[x + (y * width)];
+	}
+
+	/**
+	 * Helper method that makes the whole field.
+	 */
+	private void build(SolidMap map) {
+		this.map = map;
+		width = map.width;
+		height = map.height;
+		final int size = width * height;
+		if (size > MAX_TILES) {
+			throw new IllegalArgumentException("Levels with flow fields must "
+					+ "have at most " + MAX_TILES + " tiles!");
+		}
+		solid = new long[(size + 63) >> 6];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x += Chunk.SIZE) {
+				for (int bits = map.getLine(true, x, y); bits != 0; bits &= bits - 1) {
+					final int tx = x + Integer.numberOfTrailingZeros(bits);
+					if (tx < width) {
+						setSolid(tx + (y * width), true);
+					}
+				}
+			}
+		}
+		costs = new int[size];
+		directions = new byte[size];
+		queue = new int[size];
+		marks = new byte[size];
+		Arrays.fill(costs, UNREACHABLE);
+		touchedSize = 0;
+		if (inside(goalX, goalY)) {
+			final int goal = goalX + (goalY * width);
+			if (!isSolid(goal)) {
+				costs[goal] = 0;
+				seeds[0] = goal;
+				flood(1);
+			}
+		}
+		touchedSize = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				point(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that finds the tiles that are solid in one map and not
+	 * in the other, and puts them in {@link FlowField#touched}. Chunks that
+	 * share their rows in both maps did not change.
+	 *
+	 * @return Amount of tiles that changed.
+	 */
+	private int diff(SolidMap from, SolidMap to) {
+		touchedSize = 0;
+		for (int i = 0; i < (to.chunksWide * to.chunksHigh); i++) {
+			final int[] a = from.getRows(i);
+			final int[] b = to.getRows(i);
+			if (a == b) {
+				continue;
+			}
+			final int x0 = (i % to.chunksWide) << Chunk.SHIFT;
+			final int y0 = (i / to.chunksWide) << Chunk.SHIFT;
+			for (int row = 0; row < Chunk.SIZE; row++) {
+				// Chunks that were never loaded are solid.
+				int bits = (a == null ? -1 : a[row]) ^ (b == null ? -1 : b[row]);
+				for (; bits != 0; bits &= bits - 1) {
+					final int x = x0 + Integer.numberOfTrailingZeros(bits);
+					if ((x < width) && ((y0 + row) < height)) {
+						touch(x + ((y0 + row) * width));
+					}
+				}
+			}
+		}
+		return touchedSize;
+	}
+
+	/**
+	 * Helper method that mends the field after a wall was taken away.
+	 */
+	private void open(int tile) {
+		setSolid(tile, false);
+		final int x = tile % width;
+		final int y = tile / width;
+		int best = UNREACHABLE;
+		if ((x == goalX) && (y == goalY)) {
+			best = 0;
+		} else {
+			for (int d = 0; d < DX.length; d += 2) {
+				final int next = cost(x + DX[d], y + DY[d]);
+				if (next < UNREACHABLE) {
+					best = Math.min(best, next + 1);
+				}
+			}
+		}
+		if (best < costs[tile]) {
+			costs[tile] = best;
+			touch(tile);
+			seeds[0] = ((long) best << 32) | tile;
+			flood(1);
+		}
+	}
+
+	/**
+	 * Helper method that mends the field after a wall was made. Every tile
+	 * that only got its distance through the wall is lost, going out from
+	 * the wall in order of distance. The lost tiles are then flooded again
+	 * from the tiles around them that were not lost.
+	 */
+	private void close(int tile) {
+		setSolid(tile, true);
+		final int old = costs[tile];
+		costs[tile] = UNREACHABLE;
+		touch(tile);
+		if (old == UNREACHABLE) {
+			return;
+		}
+		marks[tile] = LOST;
+		int head = 0, tail = 0;
+		tail = queueNext(tile, old, tail);
+		while (head < tail) {
+			final int lost = queue[head++];
+			final int x = lost % width;
+			final int y = lost / width;
+			final int cost = costs[lost];
+			boolean held = false;
+			for (int d = 0; (d < DX.length) && !held; d += 2) {
+				final int nx = x + DX[d];
+				final int ny = y + DY[d];
+				held = (cost(nx, ny) == (cost - 1))
+						&& (marks[nx + (ny * width)] != LOST);
+			}
+			if (!held) {
+				marks[lost] = LOST;
+				tail = queueNext(lost, cost, tail);
+			}
+		}
+		int count = 0;
+		for (int i = 0; i < tail; i++) {
+			final int lost = queue[i];
+			if (marks[lost] != LOST) {
+				continue;
+			}
+			for (int d = 0; d < DX.length; d += 2) {
+				final int nx = (lost % width) + DX[d];
+				final int ny = (lost / width) + DY[d];
+				final int next = cost(nx, ny);
+				if ((next < UNREACHABLE) && (marks[nx + (ny * width)] != LOST)) {
+					if (count == seeds.length) {
+						seeds = Arrays.copyOf(seeds, count << 1);
+					}
+					seeds[count++] = ((long) next << 32) | (nx + (ny * width));
+				}
+			}
+		}
+		for (int i = 0; i < tail; i++) {
+			final int lost = queue[i];
+			if (marks[lost] == LOST) {
+				costs[lost] = UNREACHABLE;
+				touch(lost);
+			}
+			marks[lost] = 0;
+		}
+		marks[tile] = 0;
+		Arrays.sort(seeds, 0, count);
+		flood(count);
+	}
+
+	/**
+	 * Helper method that queues the tiles next to a tile that are one step
+	 * further from the goal than it was.
+	 *
+	 * @return The new end of the queue.
+	 */
+	private int queueNext(int tile, int cost, int tail) {
+		final int x = tile % width;
+		final int y = tile / width;
+		for (int d = 0; d < DX.length; d += 2) {
+			final int nx = x + DX[d];
+			final int ny = y + DY[d];
+			if ((cost(nx, ny) == (cost + 1)) && (marks[nx + (ny * width)] == 0)) {
+				marks[nx + (ny * width)] = QUEUED;
+				queue[tail++] = nx + (ny * width);
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Helper method that spreads distances out from some tiles whose costs
+	 * are already set. The seeds are kept as <code>cost << 32 | tile</code>
+	 * and must be sorted, so they can be taken in order with the tiles the
+	 * flood reaches.
+	 */
+	private void flood(int count) {
+		int head = 0, tail = 0, next = 0;
+		while ((next < count) || (head < tail)) {
+			final int tile;
+			if ((head < tail)
+					&& ((next == count) || (costs[queue[head]] <= (int) (seeds[next] >>> 32)))) {
+				tile = queue[head++];
+			} else {
+				final long seed = seeds[next++];
+				tile = (int) seed;
+				// Skips seeds that were reached by a shorter way.
+				if (costs[tile] != (int) (seed >>> 32)) {
+					continue;
+				}
+			}
+			final int cost = costs[tile] + 1;
+			final int x = tile % width;
+			final int y = tile / width;
+			for (int d = 0; d < DX.length; d += 2) {
+				final int nx = x + DX[d];
+				final int ny = y + DY[d];
+				if (!inside(nx, ny)) {
+					continue;
+				}
+				final int near = nx + (ny * width);
+				if (!isSolid(near) && (cost < costs[near])) {
+					costs[near] = cost;
+					queue[tail++] = near;
+					touch(near);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method that works out the direction of a tile.
+	 */
+	private void point(int x, int y) {
+		if (!inside(x, y)) {
+			return;
+		}
+		final int tile = x + (y * width);
+		int best = costs[tile];
+		int direction = NONE;
+		if (best < UNREACHABLE) {
+			for (int d = 0; d < DX.length; d++) {
+				final int next = cost(x + DX[d], y + DY[d]);
+				if ((next < best)
+						&& (((d & 1) == 0) || ((cost(x + DX[d], y) < UNREACHABLE) && (cost(
+								x, y + DY[d]) < UNREACHABLE)))) {
+					best = next;
+					direction = d;
+				}
+			}
+		}
+		directions[tile] = (byte) direction;
+	}
+
+	/**
+	 * Helper method that gets the cost of a tile, which is
+	 * {@link FlowField#UNREACHABLE} outside of the level.
+	 */
+	private int cost(int x, int y) {
+		return inside(x, y) ? costs[x + (y * width)] : UNREACHABLE;
+	}
+
+	private boolean inside(int x, int y) {
+		return (x >= 0) && (y >= 0) && (x < width) && (y < height);
+	}
+
+	private boolean isSolid(int tile) {
+		return ((solid[tile >> 6] >>> tile) & 1) != 0;
+	}
+
+	private void setSolid(int tile, boolean isSolid) {
+		if (isSolid) {
+			solid[tile >> 6] |= 1L << tile;
+		} else {
+			solid[tile >> 6] &= ~(1L << tile);
+		}
+	}
+
+	/**
+	 * Helper method that remembers a tile whose direction may have changed.
+	 */
+	private void touch(int tile) {
+		if (touchedSize == touched.length) {
+			touched = Arrays.copyOf(touched, touchedSize << 1);
+		}
+		touched[touchedSize++] = tile;
+	}
+}
@@ -2,15 +2,29 @@ package game.level;
 
 import game.Game;
 import game.entities.Entity;
+import game.entities.Landmine;
 import game.entities.PlayerMP;
 import game.gfx.Screen;
 import game.level.tiles.Tile;
+import game.net.packets.Packet79ChunkRequest;
 import game.utils.Debug;
 import game.utils.Type;
+import game.utils.Workers;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 
@@ -18,6 +32,21 @@ import javax.imageio.ImageIO;
  * This class contains the methods needed to set tiles, get tiles, and render
  * the level of the game. A level object also contains a list of entities that
  * exist within the level.
+ * <p>
+ * The entities belong to the thread that ticks and renders the level. Other
+ * threads (like the {@link game.net.GameClient}) never touch them directly:
+ * methods such as {@link Level#addEntity(Entity)} or
+ * {@link Level#movePlayer(String, int, int, boolean, int, boolean)} only queue
+ * the change, and it is done at the start of the next {@link Level#tick()}.
+ * Other threads that want to look at the entities get a copy from
+ * {@link Level#getEntities()} that never changes.
+ * </p>
+ * <p>
+ * The tiles are kept in a {@link ChunkMap}. Big chunked level files are
+ * streamed: chunks are read when they are first used, and clients get them
+ * from the server around their player instead of downloading the whole
+ * level.
+ * </p>
  *
  * @author AJ Walter
  */
@@ -29,11 +58,99 @@ public class Level {
 	public static final String CLASS = "Level";
 
 	/**
-	 * A byte array that contains the IDs of the tiles.
+	 * How far (in pixels) outside of the camera an {@link Entity} may be and
+	 * still get rendered. Covers the largest sprite, name tag and tweening
+	 * distance of any entity relative to its position.
+	 */
+	public static final int RENDER_MARGIN = 128;
+
+	/**
+	 * Most rows of the level image decoded by one thread at a time when the
+	 * level is loaded on more than one thread.
 	 *
-	 * @see Tile
+	 * @see Workers
+	 */
+	public static final int DECODE_ROWS = 64;
+
+	/**
+	 * Clients of a streamed level ask for missing chunks every STREAM_TICKS
+	 * ticks, up to STREAM_RADIUS chunks away from their player, and ask
+	 * again if a chunk has not come STREAM_TIMEOUT ticks later.
+	 */
+	public static final int STREAM_TICKS = 10, STREAM_RADIUS = 2,
+			STREAM_TIMEOUT = 60;
+
+	/**
+	 * Sorts entities into the order they are drawn in: by layer, then by
+	 * render order.
+	 */
+	private static final Comparator<Entity> RENDER_ORDER = new Comparator<Entity>() {
+		@Override
+		public int compare(Entity a, Entity b) {
+			if (a.getLayer() != b.getLayer()) {
+				return a.getLayer() < b.getLayer() ? -1 : 1;
+			}
+			return Long.compare(a.getRenderOrder(), b.getRenderOrder());
+		}
+	};
+
+	/**
+	 * Seconds another thread waits for the level to tick after asking for a
+	 * new level, see {@link Level#swap(String, LevelFile)}.
+	 */
+	private static final int SWAP_TIMEOUT = 5;
+
+	/**
+	 * The tiles of the level. Only changed by the thread that ticks the
+	 * level.
+	 */
+	private volatile ChunkMap world;
+
+	/**
+	 * Chunks asked for from the server, and the tick they were asked for at.
+	 */
+	private final Map<Integer, Long> requested = new HashMap<>();
+
+	/**
+	 * Chunks that only some rows came for yet, and which rows did (one bit
+	 * for each).
+	 */
+	private final Map<Integer, Chunk> arriving = new HashMap<>();
+	private final Map<Integer, Integer> arrivedRows = new HashMap<>();
+
+	/**
+	 * Amount of times the level ticked.
+	 */
+	private long ticks = 0;
+
+	/**
+	 * Tiles changed by {@link Level#alterTile(int, int, Tile)} since the last
+	 * {@link Level#takeTileDeltas()}, for every chunk. Only kept while
+	 * hosting a server.
+	 */
+	private final Map<Integer, ChangedChunk> changes = new HashMap<>();
+
+	/**
+	 * Finds paths over the tiles, given a new {@link SolidMap} every tick.
+	 */
+	private final Pathfinder pathfinder = new Pathfinder();
+
+	/**
+	 * Which tiles were solid at the end of the last tick, for
+	 * {@link Level#raycast(int, int, int, int)} on any thread.
+	 */
+	private volatile SolidMap solidMap;
+
+	/**
+	 * Flow fields toward the flag bases and spawns, made when first asked for
+	 * by {@link Level#getFlowField(String, boolean)}.
+	 */
+	private final Map<String, FlowField> flowFields = new HashMap<>();
+
+	/**
+	 * Where the spawns and flag bases are, found when the level was loaded.
 	 */
-	private byte[] tiles;
+	private volatile LevelMetadata metadata;
 
 	/**
 	 * Dimensions of the level in {@link Tile}s.
@@ -44,23 +161,100 @@ public class Level {
 	 * {@link Entity} is in this list and it is not {@link Entity#markForDelete}
 	 * , it will be rendered to the screen.
 	 */
-	private final List<Entity> entities = new ArrayList<>();
+	private final EntityStore entities = new EntityStore();
 
 	/**
-	 * Path of the file the level is being rendered from.
+	 * Ticks bullets and landmines from arrays instead of one at a time, or
+	 * <code>null</code> if every {@link Entity} ticks itself. Turned on with
+	 * <code>-Dtanks.soa=true</code>.
+	 *
+	 * @see EntitySystems
+	 */
+	private final EntitySystems systems;
+	private final EntityColumns columns;
+
+	/**
+	 * Changes to the entities waiting for the next tick. Any thread may add to
+	 * it, only the ticking thread takes from it.
+	 */
+	private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Copy of {@link Level#entities} for other threads to read.
+	 */
+	private volatile List<Entity> snapshot = Collections.emptyList();
+
+	/**
+	 * <code>True</code> if {@link Level#entities} changed since the last
+	 * {@link Level#snapshot} was made.
+	 */
+	private boolean changed = false;
+
+	/**
+	 * Entities taken out by {@link Level#sweep()}, kept until the new
+	 * {@link Level#snapshot} is made so they are not recycled while other
+	 * threads can still see them.
+	 */
+	private final List<Entity> swept = new ArrayList<>();
+
+	/**
+	 * Spatial index of {@link Level#entities}, used to only render the
+	 * entities near the camera.
+	 */
+	private final EntityGrid grid = new EntityGrid();
+
+	/**
+	 * Entities that are rendered even when they are not near the camera.
+	 *
+	 * @see Entity#isCullable()
+	 */
+	private final List<Entity> uncullable = new ArrayList<>();
+
+	/**
+	 * Entities with a unique ID, by ID.
+	 */
+	private final Map<Integer, Entity> byId = new HashMap<>();
+
+	/**
+	 * Game objects (ID -2), which do not have a unique ID.
 	 */
-	private String imagePath;
+	private final List<Entity> gameObjects = new ArrayList<>();
 
 	/**
-	 * The {@link BufferedImage} gathered from the path.
+	 * Players, by username.
+	 */
+	private final Map<String, PlayerMP> byUsername = new HashMap<>();
+
+	/**
+	 * Landmines, by the username of the player that placed them.
+	 */
+	private final Map<String, List<Landmine>> minesByOwner = new HashMap<>();
+
+	/**
+	 * Entities found near the camera in the frame being rendered.
+	 */
+	private final List<Entity> visible = new ArrayList<>();
+
+	/**
+	 * Render orders handed out to the top and bottom layers so far.
+	 */
+	private long topOrder = 0, bottomOrder = 0;
+
+	/**
+	 * Path of the file the level is being rendered from.
 	 */
-	private BufferedImage image;
+	private volatile String imagePath;
 
 	/**
 	 * The {@link Game}.
 	 */
 	private final Game game;
 
+	/**
+	 * Thread that made the level, which is the thread that ticks it.
+	 */
+	private final Thread owner = Thread.currentThread();
+
 	/**
 	 * Creates a new level.
 	 *
@@ -71,111 +265,487 @@ public class Level {
 	 *            attempt to create a standard level.
 	 */
 	public Level(Game game, String imagePath) {
-		if (imagePath != null) {
-			this.imagePath = imagePath;
-			loadLevelFromFile();
-		} else {
-			width = 64;
-			height = 64;
-			tiles = new byte[width * height];
-			this.imagePath = null;
-			generateLevel();
+		final LevelFile file = imagePath == null ? generateLevel()
+				: loadLevelFromFile(imagePath);
+		if (file != null) {
+			use(imagePath, file.width, file.height, toWorld(file),
+					findMarkers(file));
 		}
 		this.game = game;
+		if (Boolean.getBoolean("tanks.soa")) {
+			columns = new EntityColumns();
+			entities.setColumns(columns);
+			systems = new EntitySystems(this, columns);
+			Debug.out(Type.DEBUG, CLASS, "Ticking bullets and mines as arrays.");
+		} else {
+			columns = null;
+			systems = null;
+		}
 	}
 
 	/**
-	 * Recreates this object with a new {@link Level}.
+	 * Recreates this object with a new {@link Level}. The level is loaded on
+	 * the calling thread and put in place on the next tick, see
+	 * {@link Level#swap(String, LevelFile)}.
 	 *
 	 * @param imagePath
 	 *            {@link String} location of the path. If null, the level will
 	 *            attempt to create a standard level.
 	 */
-	public synchronized void regenLevel(String imagePath) {
-		if (imagePath != null) {
-			this.imagePath = imagePath;
-			loadLevelFromFile();
-		} else {
-			width = 64;
-			height = 64;
-			tiles = new byte[width * height];
-			this.imagePath = null;
-			generateLevel();
-		}
+	public void regenLevel(String imagePath) {
+		swap(imagePath, imagePath == null ? generateLevel()
+				: loadLevelFromFile(imagePath));
 	}
 	
 	/**
-	 * Recreates this object with a new {@link Level}.
+	 * Recreates this object with a new {@link Level}. The level is loaded on
+	 * the calling thread and put in place on the next tick, see
+	 * {@link Level#swap(String, LevelFile)}.
 	 *
 	 * @param imagePath
 	 *            {@link String} Actual image file of the thing we need to load.
 	 * @param buf
 	 * 				Buffered image to regenerate the level with.
 	 */
-	public synchronized void regenLevel(String imagePath, BufferedImage buf) {
-		if (imagePath != null) {
-			this.imagePath = imagePath;
-			loadLevelFromFile(buf);
+	public void regenLevel(String imagePath, BufferedImage buf) {
+		if (imagePath == null) {
+			swap(null, generateLevel());
+			return;
+		}
+		LevelFile file = null;
+		try {
+			Debug.out(Type.DEBUG, CLASS, "Loaded network " + imagePath + ".");
+			file = loadTiles(buf);
 			Debug.out(Type.DEBUG, CLASS, "Finished loading network " + imagePath + ".");
-		} else {
-			width = 64;
-			height = 64;
-			tiles = new byte[width * height];
-			this.imagePath = null;
-			generateLevel();
+		} catch (final Exception e) {
+			e.printStackTrace();
+			Debug.out(Type.SEVERE, CLASS, "Failed to load network " + imagePath + "!");
+		}
+		swap(imagePath, file);
+	}
+
+	/**
+	 * Helper method that puts a loaded level in place on the next tick, so
+	 * the thread that ticks and renders the level never sees half of it.
+	 * The thread that ticks the level puts it in place right away. Any
+	 * other thread waits for the next tick, at most
+	 * {@link Level#SWAP_TIMEOUT} seconds, so the new level can be used once
+	 * this returns.
+	 *
+	 * @param path
+	 *            Path of the level.
+	 * @param file
+	 *            The level, or <code>null</code> if it could not be loaded,
+	 *            which keeps the old level.
+	 */
+	private void swap(String path, LevelFile file) {
+		if (file != null) {
+			swap(path, file.width, file.height, toWorld(file),
+					findMarkers(file));
 		}
 	}
 
 	/**
-	 * Helper method that loads a level from a given path.
+	 * Helper method that puts new tiles in place like
+	 * {@link Level#swap(String, LevelFile)}.
 	 */
-	private void loadLevelFromFile() {
+	private void swap(final String path, final int width, final int height,
+			final ChunkMap next, final LevelMetadata places) {
+		final CountDownLatch done = new CountDownLatch(1);
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				use(path, width, height, next, places);
+				done.countDown();
+			}
+		});
+		if (Thread.currentThread() == owner) {
+			applyCommands();
+			return;
+		}
 		try {
-			image = ImageIO.read(Level.class.getResource(imagePath));
-			width = image.getWidth();
-			height = image.getHeight();
-			tiles = new byte[width * height];
-			loadTiles();
-		} catch (final Exception e) {
-			e.printStackTrace();
-			Debug.out(Type.SEVERE, CLASS, "Failed to load " + imagePath + "!");
+			if (!done.await(SWAP_TIMEOUT, TimeUnit.SECONDS)) {
+				Debug.out(Type.WARNING, CLASS, path + " is put in place "
+						+ "once the level ticks.");
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
-	
+
 	/**
-	 * Helper method that loads a level from a given image.
+	 * Helper method that replaces the tiles and everything known about
+	 * them. Only called while the level is made, or by the thread that
+	 * ticks it.
+	 */
+	private void use(String path, int width, int height, ChunkMap next,
+			LevelMetadata places) {
+		imagePath = path;
+		this.width = width;
+		this.height = height;
+		world = next;
+		metadata = places;
+		requested.clear();
+		arriving.clear();
+		arrivedRows.clear();
+		changes.clear();
+		flowFields.clear();
+	}
+
+	/**
+	 * Helper method that loads a level from a given path. Paths of generated
+	 * levels are made by the {@link LevelGenerator}, paths ending in
+	 * {@link LevelFile#EXTENSION} are loaded as a {@link LevelFile}, anything
+	 * else as a PNG.
+	 *
+	 * @return The level, or <code>null</code> if it could not be loaded.
 	 */
-	private void loadLevelFromFile(BufferedImage buf) {
+	private static LevelFile loadLevelFromFile(String imagePath) {
 		try {
-			image = buf;
-			Debug.out(Type.DEBUG, CLASS, "Loaded network " + imagePath + ".");
-			width = image.getWidth();
-			height = image.getHeight();
-			tiles = new byte[width * height];
-			loadTiles();
+			if (LevelGenerator.isGenerated(imagePath)) {
+				final long start = System.nanoTime();
+				final LevelFile file = LevelGenerator.generate(imagePath);
+				Debug.out(Type.DEBUG, CLASS, "Generated " + imagePath + " in "
+						+ ((System.nanoTime() - start) / 1000) + " us.");
+				return file;
+			}
+			if (imagePath.endsWith(LevelFile.EXTENSION)) {
+				final long start = System.nanoTime();
+				final LevelFile file = LevelFile.load(imagePath);
+				Debug.out(Type.DEBUG, CLASS, "Loaded " + imagePath + " in "
+						+ ((System.nanoTime() - start) / 1000) + " us.");
+				return file;
+			}
+			return loadTiles(ImageIO.read(LevelFile.find(imagePath)));
 		} catch (final Exception e) {
 			e.printStackTrace();
-			Debug.out(Type.SEVERE, CLASS, "Failed to load network " + imagePath + "!");
+			Debug.out(Type.SEVERE, CLASS, "Failed to load " + imagePath + "!");
+			return null;
 		}
 	}
 
 	/**
-	 * Helper method that generates an array of tiles.
+	 * Helper method that turns the pixels of a PNG level into tiles.
 	 */
-	private void loadTiles() {
-		final int[] tileColors = image.getRGB(0, 0, width, height, null, 0,
+	private static LevelFile loadTiles(BufferedImage image) {
+		final long start = System.nanoTime();
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		final byte[] tiles = new byte[width * height];
+		if ((Workers.POOL == null) || (height <= DECODE_ROWS)) {
+			decodeRows(image, tiles, 0, height);
+		} else {
+			Workers.POOL.invoke(new DecodeTask(image, tiles, 0, height));
+		}
+		Debug.out(Type.DEBUG, CLASS, "Decoded " + width + "x" + height
+				+ " tiles in " + ((System.nanoTime() - start) / 1000000)
+				+ " ms.");
+		return new LevelFile(width, height, tiles);
+	}
+
+	/**
+	 * Helper method that turns a band of rows of the image into tiles.
+	 */
+	private static void decodeRows(BufferedImage image, byte[] tiles, int y0,
+			int y1) {
+		final int width = image.getWidth();
+		final int[] tileColors = image.getRGB(0, y0, width, y1 - y0, null, 0,
 				width);
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				tileCheck: for (final Tile t : Tile.tiles) {
-					if ((t != null)
-							&& (t.getLevelColor() == tileColors[x + (y * width)])) {
-						tiles[x + (y * width)] = t.getId();
-						break tileCheck;
+		final int offset = y0 * width;
+		for (int i = 0; i < tileColors.length; i++) {
+			tiles[offset + i] = Tile.getIdForColor(tileColors[i]);
+		}
+	}
+
+	/**
+	 * Decodes a band of rows of the image, splitting it in half until it is
+	 * at most {@link Level#DECODE_ROWS} rows. Every band writes to its own
+	 * part of the tiles.
+	 */
+	private static class DecodeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BufferedImage image;
+		private final byte[] tiles;
+		private final int y0, y1;
+
+		DecodeTask(BufferedImage image, byte[] tiles, int y0, int y1) {
+			this.image = image;
+			this.tiles = tiles;
+			this.y0 = y0;
+			this.y1 = y1;
+		}
+
+		@Override
+		protected void compute() {
+			if ((y1 - y0) <= DECODE_ROWS) {
+				decodeRows(image, tiles, y0, y1);
+				return;
+			}
+			final int middle = (y0 + y1) >>> 1;
+			invokeAll(new DecodeTask(image, tiles, y0, middle),
+					new DecodeTask(image, tiles, middle, y1));
+		}
+	}
+
+	/**
+	 * Helper method that puts the tiles of a level in a {@link ChunkMap}.
+	 * Chunked files are read while the level is used.
+	 */
+	private static ChunkMap toWorld(LevelFile file) {
+		if (file.isChunked()) {
+			return ChunkMap.lazy(file);
+		}
+		return ChunkMap.of(file.width, file.height, file.tiles);
+	}
+
+	/**
+	 * Helper method that finds the spawns and flag bases of a level. A
+	 * broken chunk only costs its markers, the level itself still loads.
+	 */
+	private static LevelMetadata findMarkers(LevelFile file) {
+		try {
+			return LevelMetadata.of(file);
+		} catch (final IOException e) {
+			Debug.out(Type.WARNING, CLASS, "Could not look for markers: "
+					+ e.getMessage());
+			return LevelMetadata.decode(null, file.width, file.height);
+		}
+	}
+
+	/**
+	 * Recreates this object with a streamed level from a server. The empty
+	 * level is put in place on the next tick, see
+	 * {@link Level#swap(String, LevelFile)}, and the chunks are asked for
+	 * while the level ticks.
+	 *
+	 * @param imagePath
+	 *            Path of the level on the server.
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @param metadata
+	 *            Spawns and flag bases found by the server, since the
+	 *            markers are in chunks that are not here yet.
+	 */
+	public void regenStreamed(String imagePath, int width, int height,
+			LevelMetadata metadata) {
+		swap(imagePath, width, height, ChunkMap.remote(width, height),
+				metadata);
+		Debug.out(Type.DEBUG, CLASS, "Streaming " + imagePath + " ("
+				+ width + "x" + height + ").");
+	}
+
+	/**
+	 * Puts rows of a chunk that came from the server in the level on the
+	 * next tick. The chunk is used once every row came, replacing the one
+	 * that was there.
+	 *
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @param version
+	 *            Version of the chunk on the server.
+	 * @param row
+	 *            First row that came.
+	 * @param ids
+	 *            IDs of the tiles of the rows, row by row.
+	 */
+	public void receiveChunk(final int cx, final int cy, final int version,
+			final int row, final byte[] ids) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				final ChunkMap map = world;
+				// Chunks of a level file are never sent.
+				if ((map.isStreamed() && !map.isRemote()) || (cx < 0)
+						|| (cx >= map.chunksWide) || (cy < 0)
+						|| (cy >= map.chunksHigh)) {
+					return;
+				}
+				for (final byte id : ids) {
+					if ((id < 0) || (Tile.tiles[id] == null)) {
+						Debug.out(Type.WARNING, CLASS, "Chunk " + cx + ","
+								+ cy + " has unknown tile " + id + "!");
+						return;
 					}
 				}
+				final Integer key = cx + (cy * map.chunksWide);
+				Chunk chunk = arriving.get(key);
+				if ((chunk == null) || (chunk.getVersion() != version)) {
+					chunk = new Chunk(cx, cy);
+					chunk.setVersion(version);
+					arriving.put(key, chunk);
+					arrivedRows.put(key, 0);
+				}
+				final int rows = ids.length >> Chunk.SHIFT;
+				int done = arrivedRows.get(key);
+				for (int y = 0; y < rows; y++) {
+					chunk.fillRow(0, row + y, ids, y << Chunk.SHIFT, Chunk.SIZE);
+					done |= 1 << (row + y);
+				}
+				if (done != -1) {
+					arrivedRows.put(key, done);
+					return;
+				}
+				arriving.remove(key);
+				arrivedRows.remove(key);
+				requested.remove(key);
+				map.put(chunk);
+			}
+		});
+	}
+
+	/**
+	 * Helper method that asks the server for chunks near the player that are
+	 * not here yet.
+	 */
+	private void requestChunks() {
+		if (((ticks % STREAM_TICKS) != 0) || (game == null)
+				|| (game.player == null) || (game.socketClient == null)) {
+			return;
+		}
+		final int pcx = (game.player.x >> 5) >> Chunk.SHIFT;
+		final int pcy = (game.player.y >> 5) >> Chunk.SHIFT;
+		final int[] wanted = new int[Packet79ChunkRequest.MAX_CHUNKS * 2];
+		int count = 0;
+		for (int cy = pcy - STREAM_RADIUS; cy <= (pcy + STREAM_RADIUS); cy++) {
+			for (int cx = pcx - STREAM_RADIUS; cx <= (pcx + STREAM_RADIUS); cx++) {
+				if ((cx < 0) || (cx >= world.chunksWide) || (cy < 0)
+						|| (cy >= world.chunksHigh)) {
+					continue;
+				}
+				if (world.isLoaded(cx, cy)) {
+					// Keeps chunks around the player from being thrown away.
+					world.getChunk(cx, cy);
+					continue;
+				}
+				final Integer key = cx + (cy * world.chunksWide);
+				final Long asked = requested.get(key);
+				if ((asked != null) && ((ticks - asked) < STREAM_TIMEOUT)) {
+					continue;
+				}
+				requested.put(key, ticks);
+				wanted[count++] = cx;
+				wanted[count++] = cy;
+				if (count == wanted.length) {
+					new Packet79ChunkRequest(game.getUsername(), wanted)
+							.writeData(game.socketClient);
+					count = 0;
+				}
 			}
 		}
+		if (count > 0) {
+			final int[] last = new int[count];
+			System.arraycopy(wanted, 0, last, 0, count);
+			new Packet79ChunkRequest(game.getUsername(), last)
+					.writeData(game.socketClient);
+		}
+	}
+
+	/**
+	 * Checks if the chunks of the level are loaded while it is used.
+	 *
+	 * @return <code>True</code> for chunked level files and levels streamed
+	 *         from a server.
+	 * @see ChunkMap#isStreamed()
+	 */
+	public boolean isStreamed() {
+		return world.isStreamed();
+	}
+
+	/**
+	 * Gets where the spawns and flag bases of the level are. Any thread may
+	 * use it.
+	 *
+	 * @return The metadata.
+	 */
+	public LevelMetadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Gets a chunk of the level. Only call from the thread that ticks the
+	 * level, see {@link Level#runOnTick(Runnable)}.
+	 *
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @return The chunk, or <code>null</code> if it is outside of the level
+	 *         or not here yet.
+	 */
+	public Chunk getChunk(int cx, int cy) {
+		return world.getChunk(cx, cy);
+	}
+
+	/**
+	 * Runs something on the thread that ticks the level, at the start of the
+	 * next tick.
+	 *
+	 * @param command
+	 *            What to run.
+	 */
+	public void runOnTick(Runnable command) {
+		commands.add(command);
+	}
+
+	/**
+	 * Puts the tiles of a new version of the level file in place, on the
+	 * next tick. Only the tiles that differ are changed, with
+	 * {@link Level#alterTile(int, int, Tile)}, so a host sends them to its
+	 * clients as {@link TileDelta}s.
+	 *
+	 * @param file
+	 *            The new version.
+	 * @return <code>null</code> if the new tiles will be put in place, or
+	 *         why they cannot be ("changed size", "is streamed", "is
+	 *         chunked now" or "is not loaded"), so the level has to be loaded
+	 *         again instead.
+	 */
+	public String reload(final LevelFile file) {
+		final String expected = imagePath;
+		if (expected == null) {
+			return "is not loaded";
+		}
+		if ((file.width != width) || (file.height != height)) {
+			return "changed size";
+		}
+		if (isStreamed()) {
+			return "is streamed";
+		}
+		if (file.isChunked()) {
+			return "is chunked now";
+		}
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				// Another level may have been put in place since.
+				if ((file.width != width) || (file.height != height)
+						|| !expected.equals(imagePath) || isStreamed()) {
+					Debug.out(Type.DEBUG, CLASS, "Not reloading " + expected
+							+ ", the level changed.");
+					return;
+				}
+				int changed = 0;
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						final byte id = file.tiles[x + (y * width)];
+						if (world.getTile(x, y) != id) {
+							alterTile(x, y, Tile.tiles[id]);
+							changed++;
+						}
+					}
+				}
+				metadata = LevelMetadata.of(width, height, file.tiles);
+				Debug.out(Type.INFO, CLASS, "Reloaded " + imagePath + ", "
+						+ changed + " tiles changed.");
+			}
+		});
+		return null;
 	}
 
 	/**
@@ -189,40 +759,344 @@ public class Level {
 	 *            Tile to change (x,y) to.
 	 */
 	public void alterTile(int x, int y, Tile newTile) {
-		tiles[x + (y * width)] = newTile.getId();
-		image.setRGB(x, y, newTile.getLevelColor());
+		final Chunk chunk = world.setTile(x, y, newTile);
+		if ((chunk == null) || (game == null) || game.socketServerIsNull()) {
+			return;
+		}
+		final Integer key = chunk.cx + (chunk.cy * world.chunksWide);
+		ChangedChunk changed = changes.get(key);
+		if ((changed == null) || (changed.chunk != chunk)) {
+			changed = new ChangedChunk(chunk, chunk.getVersion() - 1);
+			changes.put(key, changed);
+		}
+		changed.add((short) ((x & Chunk.MASK)
+				+ ((y & Chunk.MASK) << Chunk.SHIFT)));
 	}
 
 	/**
-	 * Generates an empty level.
+	 * Gets the tiles changed since the last time this was called, so they
+	 * can be sent to clients. Only call from the thread that ticks the level.
+	 *
+	 * @return The changes, as deltas of every chunk.
 	 */
-	public void generateLevel() {
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				tiles[x + (y * width)] = Tile.GUI.getId();
+	public List<TileDelta> takeTileDeltas() {
+		if (changes.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final List<TileDelta> deltas = new ArrayList<>();
+		for (final ChangedChunk changed : changes.values()) {
+			final Chunk chunk = changed.chunk;
+			// Skips chunks of a level that was loaded over since.
+			if (world.isLoaded(chunk.cx, chunk.cy)
+					&& (world.getChunk(chunk.cx, chunk.cy) == chunk)) {
+				deltas.addAll(TileDelta.of(chunk, changed.from, changed.cells,
+						changed.count));
 			}
 		}
+		changes.clear();
+		return deltas;
 	}
 
 	/**
-	 * Prevents the list from being accessed and written at the same time. That
-	 * would cause problem. This fix problem.
+	 * Puts tiles that changed on the server in the level on the next tick.
+	 * If the chunk is not at the version the delta starts from, a change was
+	 * missed, and the whole chunk is asked for again.
+	 *
+	 * @param delta
+	 *            The changes.
+	 */
+	public void receiveTiles(final TileDelta delta) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				if (!world.isLoaded(delta.cx, delta.cy)) {
+					return; // Comes with the chunk.
+				}
+				final Chunk chunk = world.getChunk(delta.cx, delta.cy);
+				if (chunk.getVersion() >= delta.to) {
+					return; // Old news.
+				}
+				if (chunk.getVersion() == delta.from) {
+					delta.apply(chunk);
+					world.changed();
+					return;
+				}
+				Debug.out(Type.DEBUG, CLASS, "Missed changes to chunk "
+						+ delta.cx + "," + delta.cy + ", asking for it again.");
+				if ((game != null) && (game.socketClient != null)) {
+					final Integer key = delta.cx + (delta.cy * world.chunksWide);
+					final Long asked = requested.get(key);
+					if ((asked == null) || ((ticks - asked) >= STREAM_TIMEOUT)) {
+						requested.put(key, ticks);
+						new Packet79ChunkRequest(game.getUsername(), new int[] {
+								delta.cx, delta.cy }).writeData(game.socketClient);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Tiles of a chunk that changed, in the order they changed.
+	 */
+	private static class ChangedChunk {
+
+		final Chunk chunk;
+		final int from;
+		short[] cells = new short[16];
+		int count = 0;
+
+		ChangedChunk(Chunk chunk, int from) {
+			this.chunk = chunk;
+			this.from = from;
+		}
+
+		void add(short cell) {
+			if (count == cells.length) {
+				cells = Arrays.copyOf(cells, count << 1);
+			}
+			cells[count++] = cell;
+		}
+	}
+
+	/**
+	 * Generates an empty level.
+	 *
+	 * @return The level, 64 by 64 {@link Tile#GUI} tiles.
+	 */
+	private static LevelFile generateLevel() {
+		final byte[] tiles = new byte[64 * 64];
+		Arrays.fill(tiles, Tile.GUI.getId());
+		return new LevelFile(64, 64, tiles);
+	}
+
+	/**
+	 * Gets the entities in the level as of the end of the last tick. The list
+	 * cannot be changed and is never changed, so any thread can look through
+	 * it without a lock.
 	 *
 	 * @return entities.
 	 */
-	public synchronized List<Entity> getEntities() {
-		return entities;
+	public List<Entity> getEntities() {
+		return snapshot;
 	}
 
 	/**
-	 * Updates the level.
+	 * Updates the level. Queued changes are done first, then the
+	 * {@link EntitySystems} (if turned on), then every other {@link Entity}.
+	 * Chunks of a streamed level are asked for and thrown away last.
 	 */
-	public synchronized void tick() {
-		for (final Entity e : getEntities()) {
+	public void tick() {
+		applyCommands();
+		if (systems != null) {
+			systems.tick();
+		}
+		for (int i = 0; i < entities.size(); i++) {
+			if ((systems != null) && systems.handles(i)) {
+				continue;
+			}
+			final Entity e = entities.get(i);
 			if (!e.isMarkedForDelete()) {
 				e.tick();
+				// Catches entities that changed position without moving.
+				grid.update(e);
 			}
 		}
+		if (world.isRemote()) {
+			requestChunks();
+		}
+		world.tick();
+		final SolidMap solid = world.snapshot();
+		solidMap = solid;
+		pathfinder.update(solid);
+		if ((solid.width * solid.height) > FlowField.MAX_TILES) {
+			flowFields.clear();
+		}
+		for (final FlowField field : flowFields.values()) {
+			field.update(solid);
+		}
+		ticks++;
+	}
+
+	/**
+	 * Gets the {@link Pathfinder} of the level. Any thread may use it.
+	 *
+	 * @return The pathfinder.
+	 */
+	public Pathfinder getPathfinder() {
+		return pathfinder;
+	}
+
+	/**
+	 * Gets which tiles were solid at the end of the last tick. Any thread may
+	 * use it.
+	 *
+	 * @return The map, or <code>null</code> before the first tick.
+	 */
+	public SolidMap getSolidMap() {
+		return solidMap;
+	}
+
+	/**
+	 * Checks how far a line gets before it runs into a wall, as of the last
+	 * tick. Any thread may use it.
+	 *
+	 * @param x0
+	 *            X of the start, in pixels.
+	 * @param y0
+	 *            Y of the start, in pixels.
+	 * @param x1
+	 *            X of the end, in pixels.
+	 * @param y1
+	 *            Y of the end, in pixels.
+	 * @return Part of the line that is clear, from 0 to 1.
+	 * @see SolidMap#raycast(int, int, int, int)
+	 */
+	public double raycast(int x0, int y0, int x1, int y1) {
+		final SolidMap map = solidMap;
+		return map == null ? 0 : map.raycast(x0, y0, x1, y1);
+	}
+
+	/**
+	 * Checks many lines at once against the same tiles, like every player
+	 * that one player might see.
+	 *
+	 * @param lines
+	 *            Start X, start Y, end X and end Y of every line, in pixels.
+	 * @param count
+	 *            Amount of lines.
+	 * @param clear
+	 *            Gets the part of every line that is clear.
+	 */
+	public void raycast(int[] lines, int count, double[] clear) {
+		final SolidMap map = solidMap;
+		for (int i = 0; i < count; i++) {
+			final int at = i * 4;
+			clear[i] = map == null ? 0 : map.raycast(lines[at], lines[at + 1],
+					lines[at + 2], lines[at + 3]);
+		}
+	}
+
+	/**
+	 * Checks if nothing solid is between two pixels, as of the last tick.
+	 *
+	 * @param x0
+	 *            X of the start, in pixels.
+	 * @param y0
+	 *            Y of the start, in pixels.
+	 * @param x1
+	 *            X of the end, in pixels.
+	 * @param y1
+	 *            Y of the end, in pixels.
+	 * @return <code>True</code> if the line between them is clear.
+	 */
+	public boolean hasLineOfSight(int x0, int y0, int x1, int y1) {
+		return raycast(x0, y0, x1, y1) >= 1;
+	}
+
+	/**
+	 * Gets the {@link FlowField} toward the flag base or the spawn of a team.
+	 * The field is kept up to date every tick from then on. Only call from
+	 * the thread that ticks the level.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @param flag
+	 *            <code>True</code> for the flag base, <code>false</code> for
+	 *            the spawn.
+	 * @return The field, or <code>null</code> if the level has more than
+	 *         {@link FlowField#MAX_TILES} tiles.
+	 */
+	public FlowField getFlowField(String team, boolean flag) {
+		if ((width * height) > FlowField.MAX_TILES) {
+			return null;
+		}
+		// Fields lead to the first spawn of a team with more than one.
+		final LevelMetadata places = metadata;
+		final int x = (flag ? places.getFlagX(team)
+				: places.getSpawnX(team, 0)) >> 5;
+		final int y = (flag ? places.getFlagY(team)
+				: places.getSpawnY(team, 0)) >> 5;
+		final String key = team + (flag ? ":FLAG" : ":SPAWN");
+		FlowField field = flowFields.get(key);
+		if ((field == null) || (field.goalX != x) || (field.goalY != y)) {
+			field = new FlowField(x, y);
+			field.update(world.snapshot());
+			flowFields.put(key, field);
+		}
+		return field;
+	}
+
+	/**
+	 * Does every queued change to the entities. Called by
+	 * {@link Level#tick()}, and should only be called from the thread that
+	 * ticks the level.
+	 */
+	public void applyCommands() {
+		Runnable command;
+		while ((command = commands.poll()) != null) {
+			command.run();
+		}
+		publish();
+	}
+
+	/**
+	 * Helper method that makes a new {@link Level#snapshot} if anything
+	 * changed.
+	 */
+	private void publish() {
+		if (changed) {
+			changed = false;
+			snapshot = Collections.unmodifiableList(new ArrayList<>(entities));
+		}
+	}
+
+	/**
+	 * Tells the level that an {@link Entity} changed position, so it can be
+	 * found at its new spot right away.
+	 *
+	 * @param ent
+	 *            {@link Entity} that moved.
+	 */
+	public void moved(Entity ent) {
+		grid.update(ent);
+	}
+
+	/**
+	 * Finds every {@link Entity} whose position is inside of a rectangle.
+	 *
+	 * @param x0
+	 *            Left edge in pixels.
+	 * @param y0
+	 *            Top edge in pixels.
+	 * @param x1
+	 *            Right edge in pixels (inclusive).
+	 * @param y1
+	 *            Bottom edge in pixels (inclusive).
+	 * @param out
+	 *            List the found entities are added to. It is not cleared.
+	 */
+	public void getEntitiesIn(int x0, int y0, int x1, int y1,
+			List<Entity> out) {
+		grid.query(x0, y0, x1, y1, out);
+	}
+
+	/**
+	 * Finds every {@link Entity} whose position is within a distance of a
+	 * point on both axes.
+	 *
+	 * @param x
+	 *            X of the point in pixels.
+	 * @param y
+	 *            Y of the point in pixels.
+	 * @param range
+	 *            Distance in pixels (inclusive).
+	 * @param out
+	 *            List the found entities are added to. It is not cleared.
+	 */
+	public void getEntitiesNear(int x, int y, int range,
+			List<Entity> out) {
+		grid.queryRange(x, y, range, out);
 	}
 
 	/**
@@ -259,14 +1133,31 @@ public class Level {
 	}
 
 	/**
-	 * Renders the entities contained within the level.
+	 * Renders the entities contained within the level. Only entities near the
+	 * camera (set by {@link Level#renderTiles(Screen, int, int)}) are looked
+	 * at.
 	 *
 	 * @param screen
 	 *            The {@link Screen} to render to.
 	 */
-	public synchronized void renderEntities(Screen screen) {
-		for (final Entity e : getEntities()) {
+	public void renderEntities(Screen screen) {
+		visible.clear();
+		grid.query(screen.xOffset - RENDER_MARGIN, screen.yOffset
+				- RENDER_MARGIN, screen.xOffset + screen.width + RENDER_MARGIN,
+				screen.yOffset + screen.height + RENDER_MARGIN, visible);
+		for (int i = visible.size() - 1; i >= 0; i--) {
+			if (!visible.get(i).isCullable()) {
+				visible.remove(i); // Added again below.
+			}
+		}
+		visible.addAll(uncullable);
+		Collections.sort(visible, RENDER_ORDER);
+		for (int i = 0; i < visible.size(); i++) {
+			final Entity e = visible.get(i);
 			if (!e.isMarkedForDelete()) {
+				if (systems != null) {
+					systems.sync(e);
+				}
 				e.render(screen);
 			}
 		}
@@ -282,87 +1173,392 @@ public class Level {
 	 * @return {@link Tile} at the X and Y position.
 	 */
 	public Tile getTile(int x, int y) {
-		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
-			return Tile.VOID;
+		return Tile.tiles[world.getTile(x, y)];
+	}
+
+	/**
+	 * Checks if the {@link Tile} at a location is solid. Everything outside of
+	 * the level, and in chunks that are not here yet, is {@link Tile#VOID},
+	 * which is solid.
+	 *
+	 * @param x
+	 *            X position in the level
+	 * @param y
+	 *            Y position in the level
+	 * @return <code>True</code> if the tile is solid.
+	 */
+	public boolean isSolid(int x, int y) {
+		return world.isSolid(x, y);
+	}
+
+	/**
+	 * Checks if any {@link Tile} inside of a rectangle is solid.
+	 *
+	 * @param x0
+	 *            Left column (inclusive).
+	 * @param y0
+	 *            Top row (inclusive).
+	 * @param x1
+	 *            Right column (inclusive).
+	 * @param y1
+	 *            Bottom row (inclusive).
+	 * @return <code>True</code> if a tile in the rectangle is solid.
+	 */
+	public boolean isSolidArea(int x0, int y0, int x1, int y1) {
+		for (int y = y0; y <= y1; y++) {
+			for (int x = x0; x <= x1; x++) {
+				if (isSolid(x, y)) {
+					return true;
+				}
+			}
 		}
-		return Tile.tiles[tiles[x + (y * width)]];
+		return false;
+	}
+
+	/**
+	 * Slides a box through the level in a straight line and finds when it
+	 * first enters a solid {@link Tile}, see
+	 * {@link SolidMap#sweepBox(int, int, int, int, int, int)}. Looks at the
+	 * tiles as they are now, so only call from the thread that ticks the
+	 * level. Other threads sweep a {@link SolidMap} instead.
+	 *
+	 * @param x0
+	 *            Left edge of the box in pixels.
+	 * @param y0
+	 *            Top edge of the box in pixels.
+	 * @param x1
+	 *            Right edge of the box in pixels (inclusive).
+	 * @param y1
+	 *            Bottom edge of the box in pixels (inclusive).
+	 * @param dx
+	 *            Distance moved on the X plain.
+	 * @param dy
+	 *            Distance moved on the Y plain.
+	 * @return How much (0.0 - 1.0) of the move can be done without entering a
+	 *         solid tile. 1.0 if the whole move is clear.
+	 */
+	public double sweepBox(int x0, int y0, int x1, int y1, int dx, int dy) {
+		return world.snapshot().sweepBox(x0, y0, x1, y1, dx, dy);
 	}
 
 	/**
-	 * Adds an entity to the top layer of the game. The game will automatically
-	 * tick and update entities within this list.
+	 * Gets which tiles are solid right now, for work handed to other
+	 * threads during a tick. Only call from the thread that ticks the
+	 * level.
+	 */
+	SolidMap snapshot() {
+		return world.snapshot();
+	}
+
+	/**
+	 * Adds an entity to the top of its render layer on the next tick. The game
+	 * will automatically tick and update entities within this list.
 	 *
 	 * @param ent
 	 *            {@link Entity} added.
 	 */
-	public synchronized void addEntity(Entity ent) {
-		getEntities().add(ent);
+	public void addEntity(final Entity ent) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				ent.setRenderOrder(++topOrder);
+				entities.add(ent);
+				index(ent);
+			}
+		});
 	}
 
 	/**
-	 * Adds an entity to the bottom layer of the game.
+	 * Adds an entity to the bottom of its render layer on the next tick.
 	 *
 	 * @param ent
 	 *            {@link Entity} added.
 	 * @see Level#addEntity(Entity)
 	 */
-	public synchronized void addLowestEntity(Entity ent) {
-		getEntities().add(0, ent);
+	public void addLowestEntity(final Entity ent) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				ent.setRenderOrder(--bottomOrder);
+				entities.add(ent);
+				index(ent);
+			}
+		});
+	}
+
+	/**
+	 * Helper method that adds a new {@link Entity} to the indexes.
+	 *
+	 * @param ent
+	 *            {@link Entity} added.
+	 */
+	private void index(Entity ent) {
+		changed = true;
+		grid.add(ent);
+		if (!ent.isCullable()) {
+			uncullable.add(ent);
+		}
+		if (ent.getID() == -2) {
+			gameObjects.add(ent);
+		} else {
+			final Entity old = byId.put(ent.getID(), ent);
+			if ((old != null) && (old != ent)) {
+				Debug.out(Type.WARNING, CLASS, "The ID " + ent.getID()
+						+ " is used twice!");
+			}
+		}
+		if (ent instanceof PlayerMP) {
+			byUsername.put(((PlayerMP) ent).getUsername(), (PlayerMP) ent);
+		}
+		if (ent instanceof Landmine) {
+			final String owner = ((Landmine) ent).getUsername();
+			List<Landmine> mines = minesByOwner.get(owner);
+			if (mines == null) {
+				mines = new ArrayList<>();
+				minesByOwner.put(owner, mines);
+			}
+			mines.add((Landmine) ent);
+		}
+	}
+
+	/**
+	 * Helper method that takes a removed {@link Entity} out of the indexes.
+	 *
+	 * @param ent
+	 *            {@link Entity} removed.
+	 */
+	private void unindex(Entity ent) {
+		changed = true;
+		grid.remove(ent);
+		uncullable.remove(ent);
+		if (ent.getID() == -2) {
+			gameObjects.remove(ent);
+		} else if (byId.get(ent.getID()) == ent) {
+			byId.remove(ent.getID());
+		}
+		if ((ent instanceof PlayerMP)
+				&& (byUsername.get(((PlayerMP) ent).getUsername()) == ent)) {
+			byUsername.remove(((PlayerMP) ent).getUsername());
+		}
+		if (ent instanceof Landmine) {
+			final List<Landmine> mines = minesByOwner.get(((Landmine) ent)
+					.getUsername());
+			if (mines != null) {
+				mines.remove(ent);
+				if (mines.isEmpty()) {
+					minesByOwner.remove(((Landmine) ent).getUsername());
+				}
+			}
+		}
 	}
 
 	/**
-	 * Finds a player and destroys it from the game.
+	 * Takes an {@link Entity} out of the level on the next tick.
+	 *
+	 * @param ent
+	 *            {@link Entity} to remove.
+	 */
+	public void removeEntity(final Entity ent) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				remove(ent);
+			}
+		});
+	}
+
+	/**
+	 * Helper method that takes an {@link Entity} out of the level right away.
+	 *
+	 * @param ent
+	 *            {@link Entity} to remove.
+	 */
+	private void remove(Entity ent) {
+		if (entities.remove(ent)) {
+			unindex(ent);
+			// The old snapshot still has it, so it is recycled once it is gone.
+			publish();
+			ent.recycle();
+		}
+	}
+
+	/**
+	 * Takes every {@link Entity} that is {@link Entity#markForDelete} out of
+	 * the level. Should only be called from the thread that ticks the level.
+	 *
+	 * @return Amount of entities removed.
+	 */
+	public int sweep() {
+		// Backwards, so the entity swapped into an empty slot was already seen.
+		for (int i = entities.size() - 1; i >= 0; i--) {
+			final Entity e = entities.get(i);
+			if (e.isMarkedForDelete()) {
+				entities.remove(i);
+				unindex(e);
+				swept.add(e);
+			}
+		}
+		publish();
+		final int removed = swept.size();
+		for (int i = 0; i < removed; i++) {
+			swept.get(i).recycle();
+		}
+		swept.clear();
+		return removed;
+	}
+
+	/**
+	 * Finds an {@link Entity} by its ID. Should only be called from the thread
+	 * that ticks the level.
+	 *
+	 * @param id
+	 *            ID of the {@link Entity}. Game objects (-2) are not unique
+	 *            and cannot be found this way.
+	 * @return The {@link Entity}, or <code>null</code> if there is none.
+	 */
+	public Entity getEntity(int id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * Finds a player by username. Should only be called from the thread that
+	 * ticks the level.
 	 *
 	 * @param username
-	 *            {@link String} of the username to remove.
+	 *            {@link String} of the username to look for.
+	 * @return The {@link PlayerMP}, or <code>null</code> if there is none.
 	 */
-	public synchronized void removePlayerMP(String username) {
-		int index = 0;
-		for (final Entity e : getEntities()) {
-			if ((e instanceof PlayerMP)
-					&& ((PlayerMP) e).getUsername().equals(username)) {
-				break;
+	public PlayerMP getPlayer(String username) {
+		return byUsername.get(username);
+	}
+
+	/**
+	 * Makes the {@link Entity} with an ID {@link Entity#markForDelete} on the
+	 * next tick. All game objects are marked if the ID is -2.
+	 *
+	 * @param id
+	 *            ID to destroy.
+	 */
+	public void destroy(final int id) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				if (id == -2) {
+					for (int i = 0; i < gameObjects.size(); i++) {
+						gameObjects.get(i).markForDelete();
+					}
+					return;
+				}
+				final Entity e = byId.get(id);
+				if (e == null) {
+					Debug.out(Type.WARNING, CLASS, "The ID " + id
+							+ " was not found!");
+					return;
+				}
+				kill(e);
 			}
-			index++;
+		});
+	}
+
+	/**
+	 * Helper method that makes an {@link Entity} {@link Entity#markForDelete}
+	 * and tells the {@link EntityColumns}, which do not look at the entities
+	 * they tick.
+	 */
+	private void kill(Entity e) {
+		e.markForDelete();
+		if ((columns != null) && (e.getSlot() != EntityStore.NO_SLOT)) {
+			columns.kill(e.getSlot());
 		}
-		getEntities().remove(index);
 	}
 
 	/**
-	 * Damages a player.
+	 * Makes every {@link Landmine} placed by a player
+	 * {@link Entity#markForDelete} on the next tick.
+	 *
+	 * @param username
+	 *            {@link String} of the username that placed the mines.
+	 */
+	public void destroyMines(final String username) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				final List<Landmine> mines = minesByOwner.get(username);
+				if (mines != null) {
+					for (int i = 0; i < mines.size(); i++) {
+						kill(mines.get(i));
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Finds a player and destroys it from the game on the next tick.
+	 *
+	 * @param username
+	 *            {@link String} of the username to remove.
+	 */
+	public void removePlayerMP(final String username) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				final PlayerMP player = getPlayer(username);
+				if (player == null) {
+					Debug.out(Type.WARNING, CLASS, "Cannot remove " + username
+							+ ", they are not in the level!");
+					return;
+				}
+				remove(player);
+			}
+		});
+	}
+
+	/**
+	 * Damages a player on the next tick.
 	 *
 	 * @param username
 	 *            {@link String} of the username to damage.
 	 * @param damage
 	 *            Amount of health to damage.
 	 */
-	public synchronized void damagePlayer(String username, int damage) {
-		final int index = getPlayerMPIndex(username);
-		((PlayerMP) (getEntities().get(index))).takeDamage(damage);
+	public void damagePlayer(final String username, final int damage) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				final PlayerMP player = getPlayer(username);
+				if (player == null) {
+					Debug.out(Type.WARNING, CLASS, "Cannot damage " + username
+							+ ", they are not in the level!");
+					return;
+				}
+				player.takeDamage(damage);
+			}
+		});
 	}
 
 	/**
-	 * Gets the index of a matching player in the entities list.
+	 * Sets the score of a player on the next tick.
 	 *
 	 * @param username
-	 *            {@link String} of the username to look for.
-	 * @return int index of the found player. Returns the size of the array if
-	 *         not found.
-	 */
-	private synchronized int getPlayerMPIndex(String username) {
-		int index = 0;
-		for (final Entity e : getEntities()) {
-			if ((e instanceof PlayerMP)
-					&& ((PlayerMP) e).getUsername().equals(username)) {
-				break;
+	 *            {@link String} of the username to change.
+	 * @param score
+	 *            The new score.
+	 */
+	public void setScore(final String username, final int score) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				final PlayerMP player = getPlayer(username);
+				if (player != null) {
+					player.setScore(score);
+				}
 			}
-			index++;
-		}
-		return index;
+		});
 	}
 
 	/**
-	 * Moves a player to a location.
+	 * Moves a player to a location on the next tick.
 	 *
 	 * @param username
 	 *            Player to move.
@@ -377,14 +1573,23 @@ public class Level {
 	 * @param hasFlag
 	 *            <code>True</code> if the player has a flag.
 	 */
-	public synchronized void movePlayer(String username, int x, int y,
-			boolean isMoving, int movingDir, boolean hasFlag) {
-		final int index = getPlayerMPIndex(username);
-		final PlayerMP player = (PlayerMP) getEntities().get(index);
-		player.setPos(x, y);
-		player.setMoving(isMoving);
-		player.setMovingDir(movingDir);
-		player.setFlag(hasFlag);
+	public void movePlayer(final String username, final int x, final int y,
+			final boolean isMoving, final int movingDir, final boolean hasFlag) {
+		commands.add(new Runnable() {
+			@Override
+			public void run() {
+				final PlayerMP player = getPlayer(username);
+				if (player == null) {
+					Debug.out(Type.WARNING, CLASS, "Cannot move " + username
+							+ ", they are not in the level!");
+					return;
+				}
+				player.setPos(x, y);
+				player.setMoving(isMoving);
+				player.setMovingDir(movingDir);
+				player.setFlag(hasFlag);
+			}
+		});
 	}
 
 	/**
@@ -392,16 +1597,21 @@ public class Level {
 	 *
 	 * @return {@link Game} object.
 	 */
-	public synchronized Game getGame() {
+	public Game getGame() {
 		return game;
 	}
 	
 	/**
-	 * Get the buffered image object of this level.
+	 * Makes a picture of this level the same way PNG levels are drawn, with
+	 * one pixel of the level color of every tile. Made again every time, so
+	 * it has every change from {@link Level#alterTile(int, int, Tile)}. Reads
+	 * every chunk, so it is not used for streamed levels.
+	 *
 	 * @return buffered image.
 	 */
-	public synchronized BufferedImage getImage() {
-		return this.image;
+	public BufferedImage getImage() {
+		final ChunkMap map = world;
+		return LevelFile.toImage(map.width, map.height, map.toArray());
 	}
 	
 	/**
@@ -0,0 +1,534 @@
+package game.level;
+
+import game.level.tiles.Tile;
+import game.utils.Debug;
+import game.utils.Type;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A {@link LevelFile} is a level saved as tile IDs instead of as a picture, so
+ * it can be loaded without decoding a PNG. The file is laid out as:
+ * <p>
+ * <b>Header</b> - {@link LevelFile#MAGIC} (4 bytes), {@link LevelFile#VERSION}
+ * (1 byte), the encoding (1 byte, {@link LevelFile#RAW} or
+ * {@link LevelFile#RLE}), then the width and the height (4 bytes each). All
+ * numbers are big endian.
+ * </p>
+ * <p>
+ * <b>RAW</b> - One byte for every tile, row by row.
+ * </p>
+ * <p>
+ * <b>RLE</b> - Pairs of bytes: the amount of times a tile repeats minus one,
+ * then the ID of the tile.
+ * </p>
+ * <p>
+ * <b>CHUNKED</b> - The level is cut into {@link Chunk}s, row by row, with
+ * the parts over the edge filled with {@link Tile#VOID}. First comes a table
+ * of where each chunk starts (4 bytes each, counted from the end of the
+ * table) plus where the last one ends, then every chunk as RLE. Used for big
+ * levels, so a chunk can be read without reading the ones before it.
+ * </p>
+ * Files on disk are memory mapped. Files inside of a jar are read as a
+ * stream. Chunked files are not read until their chunks are asked for, see
+ * {@link ChunkMap#lazy(LevelFile)}.
+ * <p>
+ * Run with <code>java -cp bin game.level.LevelFile [png]...</code> to turn
+ * PNG levels into level files next to them.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class LevelFile {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "LevelFile";
+
+	/**
+	 * Ending of the name of a level file.
+	 */
+	public static final String EXTENSION = ".lvl";
+
+	/**
+	 * Start of the path of a level on disk, outside of the class path. These
+	 * paths are <code>file:</code> URLs, see {@link LevelRegistry}.
+	 */
+	public static final String DISK = "file:";
+
+	/**
+	 * First four bytes of every level file ("TNKL").
+	 */
+	public static final int MAGIC = 0x544E4B4C;
+
+	/**
+	 * Version of the format written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER = 14;
+
+	/**
+	 * Ways the tiles can be stored.
+	 */
+	public static final byte RAW = 0, RLE = 1, CHUNKED = 2;
+
+	/**
+	 * Levels with at least this many tiles are saved as
+	 * {@link LevelFile#CHUNKED}.
+	 */
+	public static final int CHUNKED_TILES = 256 * 256;
+
+	/**
+	 * Dimensions of the level in {@link Tile}s.
+	 */
+	public final int width, height;
+
+	/**
+	 * IDs of the tiles, row by row. <code>null</code> for a
+	 * {@link LevelFile#CHUNKED} file that was read, whose tiles stay in the
+	 * file until {@link LevelFile#readChunk(int, int)}.
+	 */
+	public final byte[] tiles;
+
+	/**
+	 * The chunks of a {@link LevelFile#CHUNKED} file, and where each one
+	 * starts in it.
+	 */
+	private final ByteBuffer chunkData;
+	private final int[] chunkOffsets;
+
+	/**
+	 * Creates a level file out of tiles.
+	 *
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @param tiles
+	 *            IDs of the tiles, row by row. Not copied.
+	 */
+	public LevelFile(int width, int height, byte[] tiles) {
+		if (tiles.length != (width * height)) {
+			throw new IllegalArgumentException("Expected " + (width * height)
+					+ " tiles, got " + tiles.length + "!");
+		}
+		this.width = width;
+		this.height = height;
+		this.tiles = tiles;
+		chunkData = null;
+		chunkOffsets = null;
+	}
+
+	/**
+	 * Helper constructor for a chunked file.
+	 */
+	private LevelFile(int width, int height, ByteBuffer chunkData,
+			int[] chunkOffsets) {
+		this.width = width;
+		this.height = height;
+		tiles = null;
+		this.chunkData = chunkData;
+		this.chunkOffsets = chunkOffsets;
+	}
+
+	/**
+	 * Loads a level file from the class path.
+	 *
+	 * @param path
+	 *            Path of the file, like <code>/levels/fort.lvl</code>.
+	 * @return The level file.
+	 * @throws IOException
+	 *             If the file is missing or broken.
+	 */
+	public static LevelFile load(String path) throws IOException {
+		final URL url = find(path);
+		if (url == null) {
+			throw new IOException("No level at " + path + "!");
+		}
+		// Levels on disk may be changed while they are used, so they are
+		// read instead of mapped.
+		if ("file".equals(url.getProtocol()) && !path.startsWith(DISK)) {
+			final FileChannel channel;
+			try {
+				channel = FileChannel.open(Paths.get(url.toURI()),
+						StandardOpenOption.READ);
+			} catch (final URISyntaxException e) {
+				throw new IOException(e);
+			}
+			try {
+				return read(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size()));
+			} finally {
+				channel.close();
+			}
+		}
+		final InputStream in = url.openStream();
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				out.write(buffer, 0, read);
+			}
+			return read(ByteBuffer.wrap(out.toByteArray()));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Finds a level on the class path, or on disk if the path starts with
+	 * {@link LevelFile#DISK}.
+	 *
+	 * @param path
+	 *            Path of the level.
+	 * @return Where the level is, or <code>null</code> if it is not there.
+	 */
+	public static URL find(String path) {
+		if (path.startsWith(DISK)) {
+			try {
+				return new URL(path);
+			} catch (final MalformedURLException e) {
+				return null;
+			}
+		}
+		return LevelFile.class.getResource(path);
+	}
+
+	/**
+	 * Reads a level file out of a buffer.
+	 *
+	 * @param buf
+	 *            Bytes of the file, from the current position.
+	 * @return The level file.
+	 * @throws IOException
+	 *             If the bytes are not a level file this version can read.
+	 */
+	public static LevelFile read(ByteBuffer buf) throws IOException {
+		if ((buf.remaining() < HEADER) || (buf.getInt() != MAGIC)) {
+			throw new IOException("Not a level file!");
+		}
+		final int version = buf.get();
+		if (version != VERSION) {
+			throw new IOException("Unknown level file version " + version
+					+ "!");
+		}
+		final byte encoding = buf.get();
+		final int width = buf.getInt();
+		final int height = buf.getInt();
+		if ((width <= 0) || (height <= 0)
+				|| (((long) width * height) > Integer.MAX_VALUE)) {
+			throw new IOException("Bad level size " + width + "x" + height
+					+ "!");
+		}
+		if (encoding == CHUNKED) {
+			final int count = ((width + Chunk.MASK) >> Chunk.SHIFT)
+					* ((height + Chunk.MASK) >> Chunk.SHIFT);
+			if (buf.remaining() < ((count + 1) * 4L)) {
+				throw new IOException("Level file is cut short!");
+			}
+			final int[] offsets = new int[count + 1];
+			for (int i = 0; i <= count; i++) {
+				offsets[i] = buf.getInt();
+				if ((i > 0) && (offsets[i] < offsets[i - 1])) {
+					throw new IOException("Level file chunks are out of order!");
+				}
+			}
+			if ((offsets[0] < 0) || (offsets[count] > buf.remaining())) {
+				throw new IOException("Level file is cut short!");
+			}
+			return new LevelFile(width, height, buf.slice(), offsets);
+		}
+		final byte[] tiles = new byte[width * height];
+		if (encoding == RAW) {
+			if (buf.remaining() < tiles.length) {
+				throw new IOException("Level file is cut short!");
+			}
+			buf.get(tiles);
+		} else if (encoding == RLE) {
+			decodeRuns(buf, tiles);
+		} else {
+			throw new IOException("Unknown level encoding " + encoding + "!");
+		}
+		checkTiles(tiles);
+		return new LevelFile(width, height, tiles);
+	}
+
+	/**
+	 * Checks if the tiles are stored in chunks that are read one at a time.
+	 *
+	 * @return <code>True</code> for {@link LevelFile#CHUNKED} files that
+	 *         were read.
+	 */
+	public boolean isChunked() {
+		return tiles == null;
+	}
+
+	/**
+	 * Reads one chunk of the level.
+	 *
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @return The chunk.
+	 * @throws IOException
+	 *             If the chunk is broken.
+	 */
+	public Chunk readChunk(int cx, int cy) throws IOException {
+		if (tiles != null) {
+			return ChunkMap.slice(width, height, tiles, cx, cy);
+		}
+		final byte[] ids = readIds(cx, cy);
+		final Chunk chunk = new Chunk(cx, cy);
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			chunk.fillRow(0, y, ids, y << Chunk.SHIFT, Chunk.SIZE);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Reads the tile IDs of one chunk of a {@link LevelFile#CHUNKED} file,
+	 * row by row, without making a {@link Chunk}.
+	 */
+	byte[] readIds(int cx, int cy) throws IOException {
+		final int i = cx + (cy * ((width + Chunk.MASK) >> Chunk.SHIFT));
+		final ByteBuffer buf = chunkData.duplicate();
+		buf.position(chunkOffsets[i]);
+		buf.limit(chunkOffsets[i + 1]);
+		final byte[] ids = new byte[Chunk.SIZE * Chunk.SIZE];
+		decodeRuns(buf, ids);
+		checkTiles(ids);
+		return ids;
+	}
+
+	/**
+	 * Helper method that reads RLE pairs until the array is full.
+	 */
+	private static void decodeRuns(ByteBuffer buf, byte[] out)
+			throws IOException {
+		int at = 0;
+		while (at < out.length) {
+			if (buf.remaining() < 2) {
+				throw new IOException("Level file is cut short!");
+			}
+			final int run = (buf.get() & 0xFF) + 1;
+			final byte id = buf.get();
+			if ((at + run) > out.length) {
+				throw new IOException("Level file has too many tiles!");
+			}
+			for (int i = 0; i < run; i++) {
+				out[at++] = id;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that makes sure every ID belongs to a {@link Tile}.
+	 */
+	private static void checkTiles(byte[] ids) throws IOException {
+		for (int i = 0; i < ids.length; i++) {
+			if ((ids[i] < 0) || (Tile.tiles[ids[i]] == null)) {
+				throw new IOException("Unknown tile " + ids[i] + "!");
+			}
+		}
+	}
+
+	/**
+	 * Turns the level into the bytes of a level file. Levels with at least
+	 * {@link LevelFile#CHUNKED_TILES} are {@link LevelFile#CHUNKED}, smaller
+	 * ones use the smaller of {@link LevelFile#RAW} and {@link LevelFile#RLE}.
+	 *
+	 * @return Bytes of the file.
+	 */
+	public byte[] toBytes() {
+		if (tiles == null) {
+			throw new IllegalStateException("Chunked files can not be saved!");
+		}
+		if (tiles.length >= CHUNKED_TILES) {
+			return toChunkedBytes();
+		}
+		final byte[] rle = encodeRuns(tiles);
+		final boolean useRle = rle.length < tiles.length;
+		final ByteBuffer buf = ByteBuffer.allocate(HEADER
+				+ (useRle ? rle.length : tiles.length));
+		buf.putInt(MAGIC);
+		buf.put((byte) VERSION);
+		buf.put(useRle ? RLE : RAW);
+		buf.putInt(width);
+		buf.putInt(height);
+		buf.put(useRle ? rle : tiles);
+		return buf.array();
+	}
+
+	/**
+	 * Helper method that saves the level as {@link LevelFile#CHUNKED}.
+	 */
+	private byte[] toChunkedBytes() {
+		final int chunksWide = (width + Chunk.MASK) >> Chunk.SHIFT;
+		final int chunksHigh = (height + Chunk.MASK) >> Chunk.SHIFT;
+		final int count = chunksWide * chunksHigh;
+		final int[] offsets = new int[count + 1];
+		final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		final byte[] ids = new byte[Chunk.SIZE * Chunk.SIZE];
+		for (int cy = 0; cy < chunksHigh; cy++) {
+			for (int cx = 0; cx < chunksWide; cx++) {
+				Arrays.fill(ids, Tile.VOID.getId());
+				final int x0 = cx << Chunk.SHIFT;
+				final int y0 = cy << Chunk.SHIFT;
+				final int w = Math.min(Chunk.SIZE, width - x0);
+				final int h = Math.min(Chunk.SIZE, height - y0);
+				for (int y = 0; y < h; y++) {
+					System.arraycopy(tiles, x0 + ((y0 + y) * width), ids,
+							y << Chunk.SHIFT, w);
+				}
+				offsets[cx + (cy * chunksWide)] = data.size();
+				final byte[] rle = encodeRuns(ids);
+				data.write(rle, 0, rle.length);
+			}
+		}
+		offsets[count] = data.size();
+		final ByteBuffer buf = ByteBuffer.allocate(HEADER + (offsets.length * 4)
+				+ data.size());
+		buf.putInt(MAGIC);
+		buf.put((byte) VERSION);
+		buf.put(CHUNKED);
+		buf.putInt(width);
+		buf.putInt(height);
+		for (final int offset : offsets) {
+			buf.putInt(offset);
+		}
+		buf.put(data.toByteArray());
+		return buf.array();
+	}
+
+	/**
+	 * Helper method that run length encodes tiles.
+	 */
+	private static byte[] encodeRuns(byte[] tiles) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int at = 0;
+		while (at < tiles.length) {
+			final byte id = tiles[at];
+			int run = 1;
+			while (((at + run) < tiles.length) && (run < 256)
+					&& (tiles[at + run] == id)) {
+				run++;
+			}
+			out.write(run - 1);
+			out.write(id);
+			at += run;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Saves the level to a file.
+	 *
+	 * @param file
+	 *            File to write to.
+	 * @throws IOException
+	 *             If the file could not be written.
+	 */
+	public void write(File file) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(toBytes());
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Makes a level file out of a PNG style level, using
+	 * {@link Tile#getIdForColor(int)} for every pixel.
+	 *
+	 * @param image
+	 *            Picture of the level.
+	 * @return The level file.
+	 */
+	public static LevelFile fromImage(BufferedImage image) {
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		final int[] colors = image.getRGB(0, 0, width, height, null, 0, width);
+		final byte[] tiles = new byte[colors.length];
+		for (int i = 0; i < colors.length; i++) {
+			tiles[i] = Tile.getIdForColor(colors[i]);
+		}
+		return new LevelFile(width, height, tiles);
+	}
+
+	/**
+	 * Makes a picture of tiles, the same as the PNG levels.
+	 *
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @param tiles
+	 *            IDs of the tiles, row by row.
+	 * @return Picture with one pixel for every tile.
+	 */
+	public static BufferedImage toImage(int width, int height, byte[] tiles) {
+		final BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		final int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				row[x] = Tile.tiles[tiles[x + (y * width)]].getLevelColor();
+			}
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return image;
+	}
+
+	/**
+	 * Turns PNG levels into level files.
+	 *
+	 * @param args
+	 *            Paths of PNG files. Each one is saved next to itself with
+	 *            the ending {@link LevelFile#EXTENSION}.
+	 */
+	public static void main(String[] args) {
+		for (final String arg : args) {
+			final File in = new File(arg);
+			final String name = in.getName();
+			final int dot = name.lastIndexOf('.');
+			final File out = new File(in.getParentFile(), (dot < 0 ? name
+					: name.substring(0, dot)) + EXTENSION);
+			try {
+				final BufferedImage image = ImageIO.read(in);
+				if (image == null) {
+					throw new IOException("Not a picture!");
+				}
+				fromImage(image).write(out);
+				Debug.out(Type.INFO, CLASS, "Converted " + in + " to " + out
+						+ ".");
+			} catch (final IOException e) {
+				Debug.out(Type.SEVERE, CLASS, "Could not convert " + in + ": "
+						+ e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package game.level;
+
+import game.level.tiles.Tile;
+
+import java.util.Random;
+
+/**
+ * Makes arena levels out of a seed. The same seed and size always make the
+ * same level, so a server only has to send the path of a generated level
+ * (like <code>gen:1234:96:96</code>) and every client makes it by itself.
+ * <p>
+ * Levels are the same when turned half way around the center, so both teams
+ * get the same arena. The green base is in the top left corner, with the
+ * spawn and flag markers of the green team, and the red base is in the
+ * bottom right. Every open spot can be reached by a tank from both bases.
+ * The markers are in the same tiles the game uses for levels without them,
+ * see {@link LevelMetadata}.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class LevelGenerator {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "LevelGenerator";
+
+	/**
+	 * Start of the path of a generated level.
+	 */
+	public static final String PREFIX = "gen:";
+
+	/**
+	 * Seed of a path that is swapped for a random seed by
+	 * {@link LevelGenerator#resolve(String)}.
+	 */
+	public static final String RANDOM_SEED = "*";
+
+	/**
+	 * Smallest and largest width and height, in {@link Tile}s.
+	 */
+	public static final int MIN_SIZE = 32, MAX_SIZE = 4096;
+
+	/**
+	 * Width and height of the corner kept open for each base, in
+	 * {@link Tile}s.
+	 */
+	private static final int BASE = 10;
+
+	/**
+	 * Tiles from the corner of a base to its spawn and its flag.
+	 */
+	private static final int SPAWN = 3, FLAG = 6;
+
+	/**
+	 * Tiles walls are made out of. One is picked for each wall.
+	 */
+	private static final Tile[] WALLS = new Tile[] { Tile.WALL, Tile.WALLV1,
+			Tile.WALLV2, Tile.WALLV3, Tile.WALLV4 };
+
+	/**
+	 * Tiles sprinkled over the floor.
+	 */
+	private static final Tile[] FLOORS = new Tile[] { Tile.FLOOR1,
+			Tile.FLOOR2, Tile.FLOOR3, Tile.FLOOR4 };
+
+	private final int width, height;
+	private final byte[] tiles;
+	private final Random random;
+
+	/**
+	 * Helper constructor.
+	 */
+	private LevelGenerator(long seed, int width, int height) {
+		this.width = width;
+		this.height = height;
+		tiles = new byte[width * height];
+		random = new Random(seed);
+	}
+
+	/**
+	 * Checks if a path is the path of a generated level.
+	 *
+	 * @param path
+	 *            Path of a level.
+	 * @return <code>True</code> if it starts with
+	 *         {@link LevelGenerator#PREFIX}.
+	 */
+	public static boolean isGenerated(String path) {
+		return (path != null) && path.startsWith(PREFIX);
+	}
+
+	/**
+	 * Makes the path of a generated level.
+	 *
+	 * @param seed
+	 *            Seed of the level.
+	 * @param width
+	 *            Width in {@link Tile}s.
+	 * @param height
+	 *            Height in {@link Tile}s.
+	 * @return The path.
+	 */
+	public static String path(long seed, int width, int height) {
+		return PREFIX + seed + ":" + width + ":" + height;
+	}
+
+	/**
+	 * Gives a path with {@link LevelGenerator#RANDOM_SEED} as seed a random
+	 * one. Used by the host when a generated map is picked, so every game
+	 * gets a new arena.
+	 *
+	 * @param path
+	 *            Path of a level.
+	 * @return The path with a seed, or the same path if it already had one.
+	 */
+	public static String resolve(String path) {
+		final String[] parts = split(path);
+		if ((parts == null) || !parts[0].equals(RANDOM_SEED)) {
+			return path;
+		}
+		return PREFIX + new Random().nextLong() + ":" + parts[1] + ":"
+				+ parts[2];
+	}
+
+	/**
+	 * Helper method that splits a path into its seed, width and height.
+	 */
+	private static String[] split(String path) {
+		if (!isGenerated(path)) {
+			return null;
+		}
+		final String[] parts = path.substring(PREFIX.length()).split(":");
+		return parts.length == 3 ? parts : null;
+	}
+
+	/**
+	 * Makes the level of a path.
+	 *
+	 * @param path
+	 *            Path like <code>gen:seed:width:height</code>.
+	 * @return The level.
+	 * @throws IllegalArgumentException
+	 *             If the path is not the path of a generated level, or the
+	 *             size is too small or too big.
+	 */
+	public static LevelFile generate(String path) {
+		final String[] parts = split(path);
+		if (parts == null) {
+			throw new IllegalArgumentException("Not a generated level: "
+					+ path);
+		}
+		try {
+			return generate(Long.parseLong(parts[0]),
+					Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Not a generated level: "
+					+ path);
+		}
+	}
+
+	/**
+	 * Makes a level.
+	 *
+	 * @param seed
+	 *            Seed of the level.
+	 * @param width
+	 *            Width in {@link Tile}s.
+	 * @param height
+	 *            Height in {@link Tile}s.
+	 * @return The level.
+	 * @throws IllegalArgumentException
+	 *             If the size is too small or too big.
+	 */
+	public static LevelFile generate(long seed, int width, int height) {
+		if ((width < MIN_SIZE) || (height < MIN_SIZE) || (width > MAX_SIZE)
+				|| (height > MAX_SIZE)) {
+			throw new IllegalArgumentException("Generated levels must be "
+					+ MIN_SIZE + " to " + MAX_SIZE + " tiles across!");
+		}
+		final LevelGenerator generator = new LevelGenerator(seed, width,
+				height);
+		generator.build();
+		return new LevelFile(width, height, generator.tiles);
+	}
+
+	/**
+	 * Helper method that makes the whole level.
+	 */
+	private void build() {
+		fill(0, 0, width - 1, height - 1, Tile.FLOOR);
+		for (int i = (width * height) / 24; i > 0; i--) {
+			set(random.nextInt(width), random.nextInt(height),
+					FLOORS[random.nextInt(FLOORS.length)]);
+		}
+		for (int i = (width * height) / 160; i > 0; i--) {
+			placeWall();
+		}
+		buildBase();
+		fill(0, 0, width - 1, 0, Tile.WALL);
+		fill(0, 0, 0, height - 1, Tile.WALL);
+		if (!connect()) {
+			carveToCenter();
+			connect();
+		}
+		mark(SPAWN, Tile.GREEN_SPAWN, Tile.RED_SPAWN);
+		mark(FLAG, Tile.GREEN_FLAG, Tile.RED_FLAG);
+	}
+
+	/**
+	 * Helper method that places a straight wall somewhere. Walls in the
+	 * bases are cleared after.
+	 */
+	private void placeWall() {
+		final boolean across = random.nextBoolean();
+		final int length = 2 + random.nextInt(7);
+		final int thickness = 1 + random.nextInt(2);
+		final int w = across ? length : thickness;
+		final int h = across ? thickness : length;
+		final int x = 1 + random.nextInt(width - w - 1);
+		final int y = 1 + random.nextInt(height - h - 1);
+		fill(x, y, (x + w) - 1, (y + h) - 1,
+				WALLS[random.nextInt(WALLS.length)]);
+	}
+
+	/**
+	 * Helper method that clears the corners for the bases and puts a bit of
+	 * cover in front of them.
+	 */
+	private void buildBase() {
+		fill(1, 1, BASE - 1, BASE - 1, Tile.FLOOR);
+		fill(BASE, 2, BASE, 5, Tile.WALLV1);
+		fill(2, BASE, 5, BASE, Tile.WALLV1);
+		fill(BASE - 2, BASE - 2, BASE - 1, BASE - 1, Tile.WALLV2);
+	}
+
+	/**
+	 * Helper method that finds every spot a tank can reach from the green
+	 * spawn, and walls off the rest.
+	 *
+	 * @return <code>True</code> if the red spawn can be reached.
+	 */
+	private boolean connect() {
+		// A tank can stand at a spot if the 2 by 2 tiles from it are open,
+		// which leaves it room to turn.
+		final int spotsWide = width - 1;
+		final boolean[] reached = new boolean[spotsWide * (height - 1)];
+		final int[] queue = new int[reached.length];
+		int head = 0, tail = 0;
+		final int start = SPAWN + (SPAWN * spotsWide);
+		if (!isOpen(SPAWN, SPAWN)) {
+			return false;
+		}
+		reached[start] = true;
+		queue[tail++] = start;
+		while (head < tail) {
+			final int spot = queue[head++];
+			final int x = spot % spotsWide;
+			final int y = spot / spotsWide;
+			for (int d = 0; d < 4; d++) {
+				final int nx = x + (d == 0 ? 1 : d == 1 ? -1 : 0);
+				final int ny = y + (d == 2 ? 1 : d == 3 ? -1 : 0);
+				final int next = nx + (ny * spotsWide);
+				if ((nx >= 0) && (ny >= 0) && (nx < spotsWide)
+						&& (ny < (height - 1)) && !reached[next]
+						&& isOpen(nx, ny)) {
+					reached[next] = true;
+					queue[tail++] = next;
+				}
+			}
+		}
+		final int redX = width - 5, redY = height - 5;
+		if (!reached[redX + (redY * spotsWide)]) {
+			return false;
+		}
+		final boolean[] covered = new boolean[tiles.length];
+		for (int i = 0; i < tail; i++) {
+			final int x = queue[i] % spotsWide;
+			final int y = queue[i] / spotsWide;
+			covered[x + (y * width)] = true;
+			covered[x + 1 + (y * width)] = true;
+			covered[x + ((y + 1) * width)] = true;
+			covered[x + 1 + ((y + 1) * width)] = true;
+		}
+		for (int i = 0; i < tiles.length; i++) {
+			if (!covered[i] && !Tile.tiles[tiles[i]].isSolid()) {
+				tiles[i] = Tile.WALL.getId();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Helper method that checks if the 2 by 2 tiles from a spot are open.
+	 */
+	private boolean isOpen(int x, int y) {
+		return !Tile.tiles[tiles[x + (y * width)]].isSolid()
+				&& !Tile.tiles[tiles[x + 1 + (y * width)]].isSolid()
+				&& !Tile.tiles[tiles[x + ((y + 1) * width)]].isSolid()
+				&& !Tile.tiles[tiles[x + 1 + ((y + 1) * width)]].isSolid();
+	}
+
+	/**
+	 * Helper method that digs a hall two tiles wide from the green spawn to
+	 * the center (and from the red spawn to the center), so the bases are
+	 * always joined.
+	 */
+	private void carveToCenter() {
+		final int cx = (width - 1) / 2;
+		final int cy = (height - 1) / 2;
+		fill(3, 3, cx + 1, 4, Tile.FLOOR);
+		fill(cx, 3, cx + 1, cy + 1, Tile.FLOOR);
+	}
+
+	/**
+	 * Helper method that puts a marker of the green team some tiles from the
+	 * top left corner, and the marker of the red team across the center.
+	 * {@link LevelGenerator#set(int, int, Tile)} is not used, since it puts
+	 * the same tile on both sides.
+	 */
+	private void mark(int inset, Tile green, Tile red) {
+		tiles[inset + (inset * width)] = green.getId();
+		tiles[(width - 1 - inset) + ((height - 1 - inset) * width)] = red
+				.getId();
+	}
+
+	/**
+	 * Helper method that fills a rectangle (inclusive) with a tile, and the
+	 * rectangle across the center with the same tile. Tiles on the edge of
+	 * the level are never changed.
+	 */
+	private void fill(int x0, int y0, int x1, int y1, Tile tile) {
+		for (int y = y0; y <= y1; y++) {
+			for (int x = x0; x <= x1; x++) {
+				set(x, y, tile);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sets a tile, and the tile across the center.
+	 */
+	private void set(int x, int y, Tile tile) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return;
+		}
+		final boolean edge = (x == 0) || (y == 0) || (x == (width - 1))
+				|| (y == (height - 1));
+		if (edge && (tile != Tile.WALL)) {
+			return;
+		}
+		tiles[x + (y * width)] = tile.getId();
+		tiles[(width - 1 - x) + ((height - 1 - y) * width)] = tile.getId();
+	}
+}
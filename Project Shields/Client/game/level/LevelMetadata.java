@@ -0,0 +1,327 @@
+package game.level;
+
+import game.level.tiles.Tile;
+import game.utils.Debug;
+import game.utils.Type;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Where the spawns and the flag base of every team are in a level, found
+ * once when the level is loaded. Levels mark them with
+ * {@link Tile#GREEN_SPAWN}, {@link Tile#RED_SPAWN}, {@link Tile#GREEN_FLAG}
+ * and {@link Tile#RED_FLAG} (or their colors in a PNG level). A team with
+ * no marker gets the place the game always used, near its corner of the
+ * level, so old levels play the same.
+ * <p>
+ * Places are in pixels, at the top left of the marked tile, so a tank put
+ * there fills the tile.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class LevelMetadata {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "LevelMetadata";
+
+	/**
+	 * Teams, in the order they are kept.
+	 */
+	public static final String[] TEAMS = { "GREEN", "RED" };
+
+	/**
+	 * Pixels from the corner of a team to its spawn and its flag base, used
+	 * if the level has no marker for them.
+	 */
+	public static final int SPAWN_INSET = 100, FLAG_INSET = 200;
+
+	/**
+	 * Most spawns kept for a team. More markers than this are ignored.
+	 */
+	public static final int MAX_SPAWNS = 8;
+
+	/**
+	 * Spawns of every team as X and Y pairs, and the flag base of every team
+	 * as one X and Y pair.
+	 */
+	private final int[][] spawns;
+	private final int[][] flags;
+
+	/**
+	 * Helper constructor, made by {@link LevelMetadata#of(int, int, byte[])},
+	 * {@link LevelMetadata#of(LevelFile)} or
+	 * {@link LevelMetadata#decode(String, int, int)}. Fills in the places
+	 * of teams without a marker.
+	 */
+	private LevelMetadata(int width, int height, int[][] spawns,
+			int[][] flags) {
+		for (int team = 0; team < TEAMS.length; team++) {
+			if (spawns[team].length == 0) {
+				spawns[team] = corner(team, SPAWN_INSET, width, height);
+			}
+			if (flags[team] == null) {
+				flags[team] = corner(team, FLAG_INSET, width, height);
+			}
+		}
+		this.spawns = spawns;
+		this.flags = flags;
+	}
+
+	/**
+	 * Finds the markers in the tiles of a level.
+	 *
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @param tiles
+	 *            IDs of the tiles, row by row.
+	 * @return The metadata.
+	 */
+	public static LevelMetadata of(int width, int height, byte[] tiles) {
+		final Finder finder = new Finder();
+		finder.look(tiles, width, 0, 0, width, height);
+		return finder.finish(width, height);
+	}
+
+	/**
+	 * Finds the markers in a level file. The chunks of a
+	 * {@link LevelFile#CHUNKED} file are read one at a time and not kept.
+	 *
+	 * @param file
+	 *            The level.
+	 * @return The metadata.
+	 * @throws IOException
+	 *             If a chunk is broken.
+	 */
+	public static LevelMetadata of(LevelFile file) throws IOException {
+		if (!file.isChunked()) {
+			return of(file.width, file.height, file.tiles);
+		}
+		final Finder finder = new Finder();
+		final int chunksWide = (file.width + Chunk.MASK) >> Chunk.SHIFT;
+		final int chunksHigh = (file.height + Chunk.MASK) >> Chunk.SHIFT;
+		for (int cy = 0; cy < chunksHigh; cy++) {
+			for (int cx = 0; cx < chunksWide; cx++) {
+				finder.look(file.readIds(cx, cy), Chunk.SIZE,
+						cx << Chunk.SHIFT, cy << Chunk.SHIFT, Chunk.SIZE,
+						Chunk.SIZE);
+			}
+		}
+		return finder.finish(file.width, file.height);
+	}
+
+	/**
+	 * Reads metadata made by {@link LevelMetadata#encode()}, for streamed
+	 * levels whose tiles are not all here.
+	 *
+	 * @param data
+	 *            The encoded metadata, or <code>null</code> if none came.
+	 * @param width
+	 *            Width of the level in {@link Tile}s.
+	 * @param height
+	 *            Height of the level in {@link Tile}s.
+	 * @return The metadata. Teams that could not be read get the places
+	 *         used without markers.
+	 */
+	public static LevelMetadata decode(String data, int width, int height) {
+		final int[][] spawns = new int[TEAMS.length][0];
+		final int[][] flags = new int[TEAMS.length][];
+		final String[] teams = data == null ? new String[0] : data
+				.split("/");
+		final int count = Math.min(TEAMS.length, teams.length);
+		for (int team = 0; team < count; team++) {
+			try {
+				final String[] numbers = teams[team].split(":");
+				if ((numbers.length < 4) || ((numbers.length % 2) != 0)) {
+					continue;
+				}
+				final int[] values = new int[numbers.length];
+				for (int i = 0; i < numbers.length; i++) {
+					values[i] = Integer.parseInt(numbers[i]);
+				}
+				flags[team] = Arrays.copyOf(values, 2);
+				spawns[team] = Arrays.copyOfRange(values, 2, Math.min(
+						values.length, 2 + (MAX_SPAWNS * 2)));
+			} catch (final NumberFormatException e) {
+				Debug.out(Type.WARNING, CLASS, "Bad metadata for "
+						+ TEAMS[team] + ": " + teams[team]);
+			}
+		}
+		return new LevelMetadata(width, height, spawns, flags);
+	}
+
+	/**
+	 * Turns the metadata into text without commas, so it fits in a packet.
+	 * Every team is its flag base then its spawns, as X and Y numbers split
+	 * by ':'. Teams are split by '/'.
+	 *
+	 * @return The encoded metadata.
+	 */
+	public String encode() {
+		final StringBuilder builder = new StringBuilder();
+		for (int team = 0; team < TEAMS.length; team++) {
+			if (team > 0) {
+				builder.append('/');
+			}
+			builder.append(flags[team][0]).append(':').append(flags[team][1]);
+			for (final int value : spawns[team]) {
+				builder.append(':').append(value);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Gets the amount of spawns of a team.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @return At least 1.
+	 */
+	public int getSpawnCount(String team) {
+		return spawns[index(team)].length / 2;
+	}
+
+	/**
+	 * Gets the X of a spawn of a team.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @param spawn
+	 *            Which spawn, below
+	 *            {@link LevelMetadata#getSpawnCount(String)}.
+	 * @return X in pixels.
+	 */
+	public int getSpawnX(String team, int spawn) {
+		return spawns[index(team)][spawn * 2];
+	}
+
+	/**
+	 * Gets the Y of a spawn of a team.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @param spawn
+	 *            Which spawn, below
+	 *            {@link LevelMetadata#getSpawnCount(String)}.
+	 * @return Y in pixels.
+	 */
+	public int getSpawnY(String team, int spawn) {
+		return spawns[index(team)][(spawn * 2) + 1];
+	}
+
+	/**
+	 * Picks one of the spawns of a team at random.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @return Which spawn.
+	 */
+	public int pickSpawn(String team) {
+		return (int) (Math.random() * getSpawnCount(team));
+	}
+
+	/**
+	 * Gets the X of the flag base of a team.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @return X in pixels.
+	 */
+	public int getFlagX(String team) {
+		return flags[index(team)][0];
+	}
+
+	/**
+	 * Gets the Y of the flag base of a team.
+	 *
+	 * @param team
+	 *            "GREEN" or "RED".
+	 * @return Y in pixels.
+	 */
+	public int getFlagY(String team) {
+		return flags[index(team)][1];
+	}
+
+	/**
+	 * Helper method that gets where a team is kept. Any team but green is
+	 * red, like everywhere else in the game.
+	 */
+	private static int index(String team) {
+		return team.equals(TEAMS[0]) ? 0 : 1;
+	}
+
+	/**
+	 * Helper method that gets a place some pixels from the corner of a team.
+	 */
+	private static int[] corner(int team, int inset, int width, int height) {
+		if (team == 0) {
+			return new int[] { inset, inset };
+		}
+		return new int[] { (width * 32) - inset, (height * 32) - inset };
+	}
+
+	/**
+	 * Collects markers while the tiles are looked through.
+	 */
+	private static class Finder {
+
+		private final byte[] spawnIds = new byte[TEAMS.length];
+		private final byte[] flagIds = new byte[TEAMS.length];
+		private final int[][] spawns = new int[TEAMS.length][0];
+		private final int[][] flags = new int[TEAMS.length][];
+
+		private Finder() {
+			spawnIds[0] = Tile.GREEN_SPAWN.getId();
+			spawnIds[1] = Tile.RED_SPAWN.getId();
+			flagIds[0] = Tile.GREEN_FLAG.getId();
+			flagIds[1] = Tile.RED_FLAG.getId();
+		}
+
+		/**
+		 * Looks through a rectangle of tiles. Tiles outside of the level
+		 * are only {@link Tile#VOID}, so they are never markers.
+		 */
+		private void look(byte[] ids, int stride, int x0, int y0, int w,
+				int h) {
+			for (int y = 0; y < h; y++) {
+				for (int x = 0; x < w; x++) {
+					final byte id = ids[x + (y * stride)];
+					// Every marker is above the tiles that are not.
+					if (id >= Tile.GREEN_SPAWN.getId()) {
+						found(id, (x0 + x) * 32, (y0 + y) * 32);
+					}
+				}
+			}
+		}
+
+		private void found(byte id, int x, int y) {
+			for (int team = 0; team < TEAMS.length; team++) {
+				if (id == spawnIds[team]) {
+					if (spawns[team].length < (MAX_SPAWNS * 2)) {
+						spawns[team] = Arrays.copyOf(spawns[team],
+								spawns[team].length + 2);
+						spawns[team][spawns[team].length - 2] = x;
+						spawns[team][spawns[team].length - 1] = y;
+					}
+				} else if ((id == flagIds[team]) && (flags[team] == null)) {
+					flags[team] = new int[] { x, y };
+				}
+			}
+		}
+
+		private LevelMetadata finish(int width, int height) {
+			for (int team = 0; team < TEAMS.length; team++) {
+				Debug.out(Type.DEBUG, CLASS, TEAMS[team] + " has "
+						+ (spawns[team].length / 2) + " spawn markers and "
+						+ (flags[team] == null ? "no" : "a") + " flag marker.");
+			}
+			return new LevelMetadata(width, height, spawns, flags);
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package game.level;
+
+import game.utils.Debug;
+import game.utils.Type;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A {@link LevelRegistry} finds the levels in a folder on disk, so a host can
+ * play levels that are not built into the game. Level files
+ * ({@link LevelFile#EXTENSION}) and PNG levels are found, and a level file
+ * is used over a PNG with the same name.
+ * <p>
+ * Once started, the registry watches the folder. Levels that are added,
+ * changed or removed are found again, and if the level being played
+ * changed, its new tiles are put in place with
+ * {@link Level#reload(LevelFile)}, which sends them to every client.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class LevelRegistry extends Thread {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "LevelRegistry";
+
+	/**
+	 * Folder that is looked in if <code>-Dtanks.levels</code> is not set.
+	 */
+	public static final String DIRECTORY = "levels";
+
+	/**
+	 * Milliseconds to wait after a file changed before reading it, so it is
+	 * done being written.
+	 */
+	private static final int SETTLE = 200;
+
+	/**
+	 * What is known about a level that was found.
+	 */
+	public static class Entry {
+
+		/**
+		 * Name of the file, without the ending.
+		 */
+		public final String name;
+
+		/**
+		 * Path of the level, a {@link LevelFile#DISK} URL.
+		 */
+		public final String path;
+
+		/**
+		 * Dimensions of the level in tiles.
+		 */
+		public final int width, height;
+
+		/**
+		 * CRC32 of the bytes of the file.
+		 */
+		public final long hash;
+
+		/**
+		 * Where the spawns and flag bases of the level are.
+		 */
+		public final LevelMetadata metadata;
+
+		private Entry(String name, String path, int width, int height,
+				long hash, LevelMetadata metadata) {
+			this.name = name;
+			this.path = path;
+			this.width = width;
+			this.height = height;
+			this.hash = hash;
+			this.metadata = metadata;
+		}
+	}
+
+	private final File directory;
+	private final Level level;
+
+	/**
+	 * Levels that were found, by name.
+	 */
+	private final Map<String, Entry> entries = new TreeMap<>();
+
+	/**
+	 * Goes up every time a level is found, changed or removed.
+	 */
+	private volatile int version = 0;
+
+	/**
+	 * Creates a registry. Nothing is found until
+	 * {@link LevelRegistry#scan()}.
+	 *
+	 * @param directory
+	 *            Folder of the levels.
+	 * @param level
+	 *            Level that is played, reloaded when its file changes.
+	 */
+	public LevelRegistry(File directory, Level level) {
+		super("LevelRegistry");
+		setDaemon(true);
+		this.directory = directory;
+		this.level = level;
+	}
+
+	/**
+	 * Finds every level in the folder.
+	 *
+	 * @return <code>False</code> if there is no folder.
+	 */
+	public boolean scan() {
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			Debug.out(Type.DEBUG, CLASS, "No level folder at " + directory
+					+ ".");
+			return false;
+		}
+		for (final File file : files) {
+			changed(file);
+		}
+		Debug.out(Type.INFO, CLASS, "Found " + entries.size()
+				+ " levels in " + directory + ".");
+		return true;
+	}
+
+	/**
+	 * Gets every level that was found, by name.
+	 *
+	 * @return A copy of the levels.
+	 */
+	public synchronized List<Entry> getLevels() {
+		return new ArrayList<>(entries.values());
+	}
+
+	/**
+	 * Gets a number that changes every time the levels change.
+	 *
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Watches the folder until the game closes.
+	 */
+	@Override
+	public void run() {
+		try {
+			final WatchService watcher = FileSystems.getDefault()
+					.newWatchService();
+			directory.toPath().register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+			while (true) {
+				final WatchKey key = watcher.take();
+				Thread.sleep(SETTLE);
+				for (final WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path) {
+						changed(new File(directory, event.context().toString()));
+					}
+				}
+				if (!key.reset()) {
+					Debug.out(Type.WARNING, CLASS, "The level folder is gone!");
+					return;
+				}
+			}
+		} catch (final IOException e) {
+			Debug.out(Type.SEVERE, CLASS, "Can not watch " + directory + ": "
+					+ e.getMessage());
+		} catch (final InterruptedException e) {
+			return;
+		}
+	}
+
+	/**
+	 * Helper method that finds a file again after it was added, changed or
+	 * removed.
+	 */
+	private void changed(File file) {
+		final String fileName = file.getName();
+		final int dot = fileName.lastIndexOf('.');
+		if ((dot < 0) || fileName.contains(",")) {
+			// Paths are sent in packets split by commas.
+			return;
+		}
+		final String ending = fileName.substring(dot).toLowerCase();
+		if (!ending.equals(LevelFile.EXTENSION) && !ending.equals(".png")) {
+			return;
+		}
+		final String name = fileName.substring(0, dot);
+		final File levelFile = new File(directory, name + LevelFile.EXTENSION);
+		if (ending.equals(".png") && levelFile.isFile()) {
+			return;
+		}
+		if (!file.isFile()) {
+			final File image = new File(directory, name + ".png");
+			if (ending.equals(LevelFile.EXTENSION) && image.isFile()) {
+				changed(image);
+				return;
+			}
+			remove(name);
+			return;
+		}
+		try {
+			final byte[] bytes = Files.readAllBytes(file.toPath());
+			final CRC32 crc = new CRC32();
+			crc.update(bytes);
+			synchronized (this) {
+				final Entry old = entries.get(name);
+				if ((old != null) && (old.hash == crc.getValue())
+						&& old.path.equals(file.toURI().toString())) {
+					return;
+				}
+			}
+			final LevelFile read = read(bytes, ending);
+			final Entry entry = new Entry(name, file.toURI().toString(),
+					read.width, read.height, crc.getValue(),
+					LevelMetadata.of(read));
+			final Entry old;
+			synchronized (this) {
+				old = entries.put(name, entry);
+			}
+			version++;
+			if (old == null) {
+				Debug.out(Type.DEBUG, CLASS, "Found " + name + " ("
+						+ entry.width + "x" + entry.height + ").");
+			} else if (entry.path.equals(level.getPath())) {
+				final String refused = level.reload(read);
+				if (refused != null) {
+					Debug.out(Type.WARNING, CLASS, name + " " + refused
+							+ ", start it again to see the changes.");
+				}
+			}
+		} catch (final IOException e) {
+			Debug.out(Type.WARNING, CLASS, "Could not read " + file + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Helper method that forgets a level.
+	 */
+	private synchronized void remove(String name) {
+		if (entries.remove(name) != null) {
+			version++;
+			Debug.out(Type.DEBUG, CLASS, "Lost " + name + ".");
+		}
+	}
+
+	/**
+	 * Helper method that reads a level file or a PNG level.
+	 */
+	private static LevelFile read(byte[] bytes, String ending)
+			throws IOException {
+		if (ending.equals(LevelFile.EXTENSION)) {
+			return LevelFile.read(ByteBuffer.wrap(bytes));
+		}
+		final BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+				bytes));
+		if (image == null) {
+			throw new IOException("Not a picture!");
+		}
+		return LevelFile.fromImage(image);
+	}
+}
@@ -0,0 +1,521 @@
+package game.level;
+
+import game.level.tiles.Tile;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link Pathfinder} finds paths between {@link Tile}s of a {@link Level}.
+ * It searches with A* and jump point search: straight and diagonal lines are
+ * followed as far as they go without a choice to make, so only the points
+ * where the path can turn are ever put in the open list. Moving diagonally
+ * is only allowed when both tiles next to the move are open, so a path
+ * never cuts a corner.
+ * <p>
+ * Paths are found on a {@link SolidMap} that the level gives the pathfinder
+ * every tick, so any thread may ask for paths. The last paths found are
+ * kept by the chunk they started in and the tile they go to. A path asked
+ * for from the same chunk to the same tile is joined to the one that was
+ * kept with a short search, instead of searching the whole level again.
+ * Kept paths are dropped when any tile of the level changes.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class Pathfinder {
+
+	/**
+	 * Most paths kept.
+	 */
+	public static final int CACHE_SIZE = 256;
+
+	/**
+	 * Most jump points looked at by one search before it gives up.
+	 */
+	public static final int MAX_NODES = 20000;
+
+	/**
+	 * Most jump points looked at while joining a kept path.
+	 */
+	private static final int JOIN_NODES = 256;
+
+	/**
+	 * Cost of a straight and a diagonal step.
+	 */
+	private static final int STRAIGHT = 10, DIAGONAL = 14;
+
+	/**
+	 * The tiles paths are found on.
+	 */
+	private volatile SolidMap map;
+
+	/**
+	 * The last paths found, from used the longest time ago to used last.
+	 * Locked on itself.
+	 */
+	private final Map<Long, CachedPath> cache = new LinkedHashMap<Long, CachedPath>(
+			CACHE_SIZE, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, CachedPath> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Gives the pathfinder the current tiles. Called by the {@link Level}
+	 * every tick.
+	 *
+	 * @param map
+	 *            The tiles.
+	 */
+	public void update(SolidMap map) {
+		this.map = map;
+	}
+
+	/**
+	 * Finds a path between two tiles.
+	 *
+	 * @param sx
+	 *            X of the first tile.
+	 * @param sy
+	 *            Y of the first tile.
+	 * @param gx
+	 *            X of the tile to go to.
+	 * @param gy
+	 *            Y of the tile to go to.
+	 * @return The tiles the path turns at, from the first tile to the last:
+	 *         X of the first, Y of the first, X of the next, and so on. Moving
+	 *         in a straight or diagonal line from each to the next follows
+	 *         the path. <code>null</code> if there is no path, or it is too
+	 *         long to find.
+	 */
+	public int[] findPath(int sx, int sy, int gx, int gy) {
+		final SolidMap map = this.map;
+		if ((map == null) || map.isSolid(sx, sy) || map.isSolid(gx, gy)) {
+			return null;
+		}
+		final int startChunk = (sx >> Chunk.SHIFT)
+				+ ((sy >> Chunk.SHIFT) * map.chunksWide);
+		final long key = ((long) startChunk << 32) | (gx + (gy * map.width));
+		final CachedPath cached;
+		synchronized (cache) {
+			cached = cache.get(key);
+		}
+		if ((cached != null) && (cached.version == map.getVersion())) {
+			final int[] path = cached.points;
+			if ((path[0] == sx) && (path[1] == sy)) {
+				return path.clone();
+			}
+			final int[] join = search(map, sx, sy, path[0], path[1],
+					JOIN_NODES);
+			if (join != null) {
+				final int[] joined = new int[(join.length + path.length) - 2];
+				System.arraycopy(join, 0, joined, 0, join.length);
+				System.arraycopy(path, 2, joined, join.length,
+						path.length - 2);
+				return joined;
+			}
+		}
+		final int[] path = search(map, sx, sy, gx, gy, MAX_NODES);
+		if (path != null) {
+			synchronized (cache) {
+				cache.put(key, new CachedPath(map.getVersion(), path));
+			}
+			return path.clone();
+		}
+		return null;
+	}
+
+	/**
+	 * Helper method that does the jump point search.
+	 */
+	private static int[] search(SolidMap map, int sx, int sy, int gx, int gy,
+			int maxNodes) {
+		final Search search = new Search();
+		final int[] next = new int[16];
+		search.push(search.add(sx + (sy * map.width), 0, -1,
+				distance(sx, sy, gx, gy)));
+		int looked = 0;
+		int node;
+		while ((node = search.pop()) >= 0) {
+			final int tile = search.tiles[node];
+			final int x = tile % map.width;
+			final int y = tile / map.width;
+			if ((x == gx) && (y == gy)) {
+				return search.trace(node, map.width);
+			}
+			if (++looked > maxNodes) {
+				return null;
+			}
+			final int count = neighbours(map, search, node, x, y, next);
+			for (int i = 0; i < count; i += 2) {
+				final int point = jump(map, next[i], next[i + 1], next[i] - x,
+						next[i + 1] - y, gx, gy);
+				if (point < 0) {
+					continue;
+				}
+				final int px = point % map.width;
+				final int py = point / map.width;
+				final int cost = search.costs[node] + distance(x, y, px, py);
+				final int total = cost + distance(px, py, gx, gy);
+				final int found = search.find(point);
+				if (found < 0) {
+					search.push(search.add(point, cost, node, total));
+				} else if (!search.closed[found] && (cost < search.costs[found])) {
+					// The old entry in the heap is skipped when it comes up.
+					search.costs[found] = cost;
+					search.totals[found] = total;
+					search.parents[found] = node;
+					search.push(found);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Helper method that finds the tiles worth moving to from a node, going
+	 * on in the direction it was reached from.
+	 *
+	 * @return Amount of X and Y values put in <code>out</code>.
+	 */
+	private static int neighbours(SolidMap map, Search search, int node,
+			int x, int y, int[] out) {
+		int count = 0;
+		final int parent = search.parents[node];
+		if (parent < 0) {
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (((dx != 0) || (dy != 0)) && open(map, x + dx, y)
+							&& open(map, x, y + dy)
+							&& open(map, x + dx, y + dy)) {
+						out[count++] = x + dx;
+						out[count++] = y + dy;
+					}
+				}
+			}
+			return count;
+		}
+		final int dx = Integer.signum(x - (search.tiles[parent] % map.width));
+		final int dy = Integer.signum(y - (search.tiles[parent] / map.width));
+		if ((dx != 0) && (dy != 0)) {
+			final boolean side = open(map, x + dx, y);
+			final boolean down = open(map, x, y + dy);
+			if (down) {
+				out[count++] = x;
+				out[count++] = y + dy;
+			}
+			if (side) {
+				out[count++] = x + dx;
+				out[count++] = y;
+			}
+			if (side && down) {
+				out[count++] = x + dx;
+				out[count++] = y + dy;
+			}
+			return count;
+		}
+		// Turns the move so it goes along X, with a and b the sides of it.
+		final boolean across = dy == 0;
+		final int step = across ? dx : dy;
+		final boolean ahead = across ? open(map, x + step, y) : open(map, x,
+				y + step);
+		final boolean a = across ? open(map, x, y + 1) : open(map, x + 1, y);
+		final boolean b = across ? open(map, x, y - 1) : open(map, x - 1, y);
+		if (ahead) {
+			count = put(out, count, across, x, y, step, 0);
+			if (a) {
+				count = put(out, count, across, x, y, step, 1);
+			}
+			if (b) {
+				count = put(out, count, across, x, y, step, -1);
+			}
+		}
+		if (a) {
+			count = put(out, count, across, x, y, 0, 1);
+		}
+		if (b) {
+			count = put(out, count, across, x, y, 0, -1);
+		}
+		return count;
+	}
+
+	/**
+	 * Helper method that puts the tile <code>along</code> tiles ahead and
+	 * <code>side</code> tiles to the side of a tile in a list of X and Y
+	 * pairs.
+	 */
+	private static int put(int[] out, int count, boolean across, int x, int y,
+			int along, int side) {
+		out[count++] = x + (across ? along : side);
+		out[count++] = y + (across ? side : along);
+		return count;
+	}
+
+	/**
+	 * Helper method that moves from a tile in a direction until the goal, a
+	 * tile where the path may have to turn, or a wall is found.
+	 *
+	 * @return The tile (<code>x + y * width</code>), or -1 for a wall.
+	 */
+	private static int jump(SolidMap map, int x, int y, int dx, int dy,
+			int gx, int gy) {
+		if ((dx == 0) || (dy == 0)) {
+			return jumpStraight(map, x, y, dx, dy, gx, gy);
+		}
+		while (true) {
+			if (map.isSolid(x, y)) {
+				return -1;
+			}
+			if (((x == gx) && (y == gy))
+					|| (jumpStraight(map, x + dx, y, dx, 0, gx, gy) >= 0)
+					|| (jumpStraight(map, x, y + dy, 0, dy, gx, gy) >= 0)) {
+				return x + (y * map.width);
+			}
+			if (!open(map, x + dx, y) || !open(map, x, y + dy)) {
+				return -1;
+			}
+			x += dx;
+			y += dy;
+		}
+	}
+
+	/**
+	 * Helper method that jumps in a straight line. A tile is a jump point if
+	 * a tile next to the line is open, but the tile behind that one is not,
+	 * since the path may need to turn there. The line is looked at 32 tiles
+	 * at a time with {@link SolidMap#getLine(boolean, int, int)}.
+	 *
+	 * @return The tile (<code>x + y * width</code>), or -1 for a wall.
+	 */
+	private static int jumpStraight(SolidMap map, int x, int y, int dx,
+			int dy, int gx, int gy) {
+		final boolean across = dy == 0;
+		final int line = across ? y : x;
+		final int step = across ? dx : dy;
+		final int goal = (across ? gy : gx) == line ? (across ? gx : gy) : -1;
+		int pos = across ? x : y;
+		while (true) {
+			final int start = pos & ~Chunk.MASK;
+			final int here = map.getLine(across, start, line);
+			final int left = map.getLine(across, start, line - 1);
+			final int right = map.getLine(across, start, line + 1);
+			int stops;
+			if (step > 0) {
+				// Bit i of behind is the tile before tile i.
+				final int behindLeft = (left << 1)
+						| (map.getLine(across, start - Chunk.SIZE, line - 1) >>> Chunk.MASK);
+				final int behindRight = (right << 1)
+						| (map.getLine(across, start - Chunk.SIZE, line + 1) >>> Chunk.MASK);
+				stops = (here | (~left & behindLeft) | (~right & behindRight))
+						& (-1 << (pos & Chunk.MASK));
+			} else {
+				final int behindLeft = (left >>> 1)
+						| (map.getLine(across, start + Chunk.SIZE, line - 1) << Chunk.MASK);
+				final int behindRight = (right >>> 1)
+						| (map.getLine(across, start + Chunk.SIZE, line + 1) << Chunk.MASK);
+				stops = (here | (~left & behindLeft) | (~right & behindRight))
+						& (-1 >>> (Chunk.MASK - (pos & Chunk.MASK)));
+			}
+			if ((goal >= 0) && ((goal & ~Chunk.MASK) == start)
+					&& (step > 0 ? goal >= pos : goal <= pos)) {
+				stops |= 1 << (goal & Chunk.MASK);
+			}
+			if (stops != 0) {
+				final int at = start
+						+ (step > 0 ? Integer.numberOfTrailingZeros(stops)
+								: Chunk.MASK - Integer.numberOfLeadingZeros(stops));
+				if (((here >>> (at & Chunk.MASK)) & 1) != 0) {
+					return -1;
+				}
+				return across ? at + (line * map.width) : line
+						+ (at * map.width);
+			}
+			pos = step > 0 ? start + Chunk.SIZE : start - 1;
+		}
+	}
+
+	/**
+	 * Helper method that checks if a tile is not solid.
+	 */
+	private static boolean open(SolidMap map, int x, int y) {
+		return !map.isSolid(x, y);
+	}
+
+	/**
+	 * Helper method that finds the cost of the shortest way between two
+	 * tiles if nothing was in the way.
+	 */
+	private static int distance(int x0, int y0, int x1, int y1) {
+		final int dx = Math.abs(x1 - x0);
+		final int dy = Math.abs(y1 - y0);
+		return (STRAIGHT * Math.max(dx, dy))
+				+ ((DIAGONAL - STRAIGHT) * Math.min(dx, dy));
+	}
+
+	/**
+	 * The jump points found by a search, kept in arrays so a search makes
+	 * next to no objects. Nodes are found by their tile with a hash table,
+	 * and the open list is a heap of longs holding the total cost of a node
+	 * and the node.
+	 */
+	private static class Search {
+
+		int[] tiles = new int[64];
+		int[] costs = new int[64];
+		int[] totals = new int[64];
+		int[] parents = new int[64];
+		boolean[] closed = new boolean[64];
+		int size = 0;
+
+		/**
+		 * Hash table from tiles (plus one, 0 being empty) to nodes.
+		 */
+		int[] keys = new int[128];
+		int[] values = new int[128];
+
+		long[] heap = new long[64];
+		int heapSize = 0;
+
+		int add(int tile, int cost, int parent, int total) {
+			if (size == tiles.length) {
+				final int length = size << 1;
+				tiles = Arrays.copyOf(tiles, length);
+				costs = Arrays.copyOf(costs, length);
+				totals = Arrays.copyOf(totals, length);
+				parents = Arrays.copyOf(parents, length);
+				closed = Arrays.copyOf(closed, length);
+			}
+			tiles[size] = tile;
+			costs[size] = cost;
+			totals[size] = total;
+			parents[size] = parent;
+			if ((size << 1) >= keys.length) {
+				rehash(keys.length << 1);
+			}
+			insert(tile, size);
+			return size++;
+		}
+
+		int find(int tile) {
+			final int mask = keys.length - 1;
+			for (int i = hash(tile) & mask; keys[i] != 0; i = (i + 1) & mask) {
+				if (keys[i] == (tile + 1)) {
+					return values[i];
+				}
+			}
+			return -1;
+		}
+
+		private void insert(int tile, int node) {
+			final int mask = keys.length - 1;
+			int i = hash(tile) & mask;
+			while (keys[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = tile + 1;
+			values[i] = node;
+		}
+
+		private void rehash(int length) {
+			keys = new int[length];
+			values = new int[length];
+			for (int node = 0; node < size; node++) {
+				insert(tiles[node], node);
+			}
+		}
+
+		private static int hash(int tile) {
+			return tile * 0x9E3779B9;
+		}
+
+		void push(int node) {
+			if (heapSize == heap.length) {
+				heap = Arrays.copyOf(heap, heapSize << 1);
+			}
+			final long entry = ((long) totals[node] << 32) | node;
+			int i = heapSize++;
+			while (i > 0) {
+				final int up = (i - 1) >> 1;
+				if (heap[up] <= entry) {
+					break;
+				}
+				heap[i] = heap[up];
+				i = up;
+			}
+			heap[i] = entry;
+		}
+
+		/**
+		 * Takes the open node with the lowest total cost and closes it.
+		 *
+		 * @return The node, or -1 if there are no open nodes.
+		 */
+		int pop() {
+			while (heapSize > 0) {
+				final long top = heap[0];
+				final long last = heap[--heapSize];
+				int i = 0;
+				while (true) {
+					int child = (i << 1) + 1;
+					if (child >= heapSize) {
+						break;
+					}
+					if (((child + 1) < heapSize) && (heap[child + 1] < heap[child])) {
+						child++;
+					}
+					if (last <= heap[child]) {
+						break;
+					}
+					heap[i] = heap[child];
+					i = child;
+				}
+				heap[i] = last;
+				final int node = (int) top;
+				// Skips nodes that were closed or found again cheaper.
+				if (!closed[node] && ((int) (top >>> 32) == totals[node])) {
+					closed[node] = true;
+					return node;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Walks back from the goal to make the path.
+		 */
+		int[] trace(int goal, int width) {
+			int length = 0;
+			for (int node = goal; node >= 0; node = parents[node]) {
+				length++;
+			}
+			final int[] path = new int[length * 2];
+			int i = path.length;
+			for (int node = goal; node >= 0; node = parents[node]) {
+				path[--i] = tiles[node] / width;
+				path[--i] = tiles[node] % width;
+			}
+			return path;
+		}
+	}
+
+	/**
+	 * A path that was found, and the version of the {@link SolidMap} it was
+	 * found on.
+	 */
+	private static class CachedPath {
+
+		final int version;
+		final int[] points;
+
+		CachedPath(int version, int[] points) {
+			this.version = version;
+			this.points = points;
+		}
+	}
+}
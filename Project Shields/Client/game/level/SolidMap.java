@@ -0,0 +1,292 @@
+package game.level;
+
+import game.level.tiles.Tile;
+
+/**
+ * A {@link SolidMap} is a copy of which tiles of a {@link ChunkMap} are solid,
+ * made by {@link ChunkMap#snapshot()}. It never changes after it is made, so
+ * any thread may use it while the level keeps ticking. Each chunk is kept as
+ * its solid rows (see {@link Chunk#getSolidRow(int)}) and its solid columns,
+ * so a whole row or column of a chunk can be looked at with one int. A new
+ * copy shares the rows and columns of every chunk that did not change.
+ *
+ * @author AJ Walter
+ */
+public class SolidMap {
+
+	/**
+	 * Dimensions of the level in {@link Tile}s and in {@link Chunk}s.
+	 */
+	public final int width, height, chunksWide, chunksHigh;
+
+	/**
+	 * Solid rows of every chunk, row by row. <code>null</code> for chunks that
+	 * were never loaded, which are solid.
+	 */
+	private final int[][] rows;
+
+	/**
+	 * Solid columns of every chunk, like {@link SolidMap#rows} but with bit 0
+	 * being the top tile of a column.
+	 */
+	private final int[][] columns;
+
+	/**
+	 * Goes up every time the map changes, see
+	 * {@link SolidMap#getVersion()}.
+	 */
+	private final int version;
+
+	/**
+	 * Helper constructor, only made by {@link ChunkMap}.
+	 */
+	SolidMap(int width, int height, int chunksWide, int chunksHigh,
+			int[][] rows, int[][] columns, int version) {
+		this.width = width;
+		this.height = height;
+		this.chunksWide = chunksWide;
+		this.chunksHigh = chunksHigh;
+		this.rows = rows;
+		this.columns = columns;
+		this.version = version;
+	}
+
+	/**
+	 * Turns the solid rows of a chunk into its solid columns.
+	 *
+	 * @param rows
+	 *            Solid rows, see {@link Chunk#getSolidRow(int)}.
+	 * @return Solid columns, bit 0 being the top tile.
+	 */
+	static int[] toColumns(int[] rows) {
+		final int[] columns = new int[Chunk.SIZE];
+		for (int y = 0; y < Chunk.SIZE; y++) {
+			for (int bits = rows[y]; bits != 0; bits &= bits - 1) {
+				columns[Integer.numberOfTrailingZeros(bits)] |= 1 << y;
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Gets which of 32 tiles in a line are solid.
+	 *
+	 * @param across
+	 *            <code>True</code> for tiles of a row, <code>false</code> for
+	 *            tiles of a column.
+	 * @param start
+	 *            Place of the first tile along the line, a multiple of
+	 *            {@link Chunk#SIZE}.
+	 * @param line
+	 *            Y of the row or X of the column.
+	 * @return One bit for each tile, bit 0 being the first. Tiles outside of
+	 *         the level are solid.
+	 */
+	public int getLine(boolean across, int start, int line) {
+		final int length = across ? width : height;
+		if ((start < 0) || (start >= length) || (line < 0)
+				|| (line >= (across ? height : width))) {
+			return -1;
+		}
+		final int[] chunk;
+		if (across) {
+			chunk = rows[(start >> Chunk.SHIFT)
+					+ ((line >> Chunk.SHIFT) * chunksWide)];
+		} else {
+			chunk = columns[(line >> Chunk.SHIFT)
+					+ ((start >> Chunk.SHIFT) * chunksWide)];
+		}
+		if (chunk == null) {
+			return -1;
+		}
+		final int bits = chunk[line & Chunk.MASK];
+		final int over = (start + Chunk.SIZE) - length;
+		return over > 0 ? bits | (-1 << (Chunk.SIZE - over)) : bits;
+	}
+
+	/**
+	 * Checks if a tile is solid.
+	 *
+	 * @param x
+	 *            X of the tile.
+	 * @param y
+	 *            Y of the tile.
+	 * @return <code>True</code> if solid. Tiles outside of the level and in
+	 *         chunks that were never loaded are solid.
+	 */
+	public boolean isSolid(int x, int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return true;
+		}
+		final int[] chunk = rows[(x >> Chunk.SHIFT)
+				+ ((y >> Chunk.SHIFT) * chunksWide)];
+		return (chunk == null)
+				|| (((chunk[y & Chunk.MASK] >>> (x & Chunk.MASK)) & 1) != 0);
+	}
+
+	/**
+	 * Checks if any {@link Tile} inside of a rectangle is solid.
+	 *
+	 * @param x0
+	 *            Left column (inclusive).
+	 * @param y0
+	 *            Top row (inclusive).
+	 * @param x1
+	 *            Right column (inclusive).
+	 * @param y1
+	 *            Bottom row (inclusive).
+	 * @return <code>True</code> if a tile in the rectangle is solid.
+	 */
+	public boolean isSolidArea(int x0, int y0, int x1, int y1) {
+		for (int y = y0; y <= y1; y++) {
+			for (int x = x0; x <= x1; x++) {
+				if (isSolid(x, y)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Slides a box through the level in a straight line and finds when it
+	 * first enters a solid {@link Tile}. The tiles are walked in the order
+	 * the leading edges of the box cross them, so the cost only depends on
+	 * how many tiles are crossed and nothing can be skipped over, no matter
+	 * how far the box moves. Tiles the box already overlaps are ignored.
+	 *
+	 * @param x0
+	 *            Left edge of the box in pixels.
+	 * @param y0
+	 *            Top edge of the box in pixels.
+	 * @param x1
+	 *            Right edge of the box in pixels (inclusive).
+	 * @param y1
+	 *            Bottom edge of the box in pixels (inclusive).
+	 * @param dx
+	 *            Distance moved on the X plain.
+	 * @param dy
+	 *            Distance moved on the Y plain.
+	 * @return How much (0.0 - 1.0) of the move can be done without entering a
+	 *         solid tile. 1.0 if the whole move is clear.
+	 */
+	public double sweepBox(int x0, int y0, int x1, int y1, int dx, int dy) {
+		return sweep(x0, y0, x1, y1, dx, dy, false);
+	}
+
+	/**
+	 * Follows a straight line from one pixel to another, tile by tile, until
+	 * it enters a solid {@link Tile}. Works in whole numbers, so a line never
+	 * slips through the corner between two solid tiles.
+	 *
+	 * @param x0
+	 *            X of the start, in pixels.
+	 * @param y0
+	 *            Y of the start, in pixels.
+	 * @param x1
+	 *            X of the end, in pixels.
+	 * @param y1
+	 *            Y of the end, in pixels.
+	 * @return Part of the line that is clear, from 0 (the start is solid) to
+	 *         1 (nothing is in the way).
+	 */
+	public double raycast(int x0, int y0, int x1, int y1) {
+		if (isSolid(x0 >> 5, y0 >> 5)) {
+			return 0;
+		}
+		return sweep(x0, y0, x0, y0, x1 - x0, y1 - y0, true);
+	}
+
+	/**
+	 * Helper method that walks the tiles crossed by the leading edges of a
+	 * box, for {@link SolidMap#sweepBox(int, int, int, int, int, int)} and
+	 * {@link SolidMap#raycast(int, int, int, int)}. A line (one pixel box)
+	 * looks at the tile the walk is in, so it can not slip between two
+	 * solid tiles that only touch at a corner. A box looks at every tile
+	 * along its leading edge.
+	 */
+	private double sweep(int x0, int y0, int x1, int y1, int dx, int dy,
+			boolean line) {
+		final int stepX = Integer.signum(dx);
+		final int stepY = Integer.signum(dy);
+		final long lengthX = Math.abs(dx);
+		final long lengthY = Math.abs(dy);
+		int col = (dx > 0 ? x1 : x0) >> 5;
+		int row = (dy > 0 ? y1 : y0) >> 5;
+
+		// Pixels until the leading edge enters the next column and row. Kept
+		// as whole numbers so no crossing is missed to rounding.
+		long nextX = dx > 0 ? ((col + 1) << 5) - x1 : (x0 - (col << 5)) + 1;
+		long nextY = dy > 0 ? ((row + 1) << 5) - y1 : (y0 - (row << 5)) + 1;
+
+		while (true) {
+			// Compare nextX / lengthX to nextY / lengthY without dividing.
+			final boolean crossX = (dx != 0)
+					&& ((dy == 0) || ((nextX * lengthY) <= (nextY * lengthX)));
+			if (crossX) {
+				if (nextX > lengthX) {
+					return 1;
+				}
+				col += stepX;
+				final long moved = dy * nextX;
+				if (line ? isSolid(col, row) : isSolidArea(col, floorTile(
+						(y0 * lengthX) + moved, lengthX), col, floorTile(
+						(y1 * lengthX) + moved, lengthX))) {
+					return (nextX - 1) / (double) lengthX;
+				}
+				nextX += 32;
+			} else {
+				if ((dy == 0) || (nextY > lengthY)) {
+					return 1;
+				}
+				row += stepY;
+				final long moved = dx * nextY;
+				if (line ? isSolid(col, row) : isSolidArea(floorTile(
+						(x0 * lengthY) + moved, lengthY), row, floorTile(
+						(x1 * lengthY) + moved, lengthY), row)) {
+					return (nextY - 1) / (double) lengthY;
+				}
+				nextY += 32;
+			}
+		}
+	}
+
+	/**
+	 * Helper method that finds the tile a pixel position falls in, when the
+	 * position is given as a fraction (<code>pos / length</code>).
+	 */
+	private static int floorTile(long pos, long length) {
+		final long tileLength = length << 5;
+		long tile = pos / tileLength;
+		if ((pos < 0) && ((tile * tileLength) != pos)) {
+			tile--;
+		}
+		return (int) tile;
+	}
+
+	/**
+	 * Gets the version of the map. Two maps of the same level with the same
+	 * version have the same solid tiles.
+	 *
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the solid rows of a chunk, used by {@link ChunkMap} to make the
+	 * next copy.
+	 */
+	int[] getRows(int index) {
+		return rows[index];
+	}
+
+	/**
+	 * Gets the solid columns of a chunk, used by {@link ChunkMap} to make the
+	 * next copy.
+	 */
+	int[] getColumns(int index) {
+		return columns[index];
+	}
+}
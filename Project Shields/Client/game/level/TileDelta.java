@@ -0,0 +1,162 @@
+package game.level;
+
+import game.level.tiles.Tile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link TileDelta} holds the tiles of one {@link Chunk} that changed
+ * between two versions of the chunk. Only the last change of every tile is
+ * kept. A delta can only be used on a chunk that is at
+ * {@link TileDelta#from}, and leaves it at {@link TileDelta#to}.
+ *
+ * @author AJ Walter
+ */
+public class TileDelta {
+
+	/**
+	 * Most tiles in one delta, so it fits in one packet.
+	 */
+	public static final int MAX_TILES = 200;
+
+	/**
+	 * Position of the chunk, in chunks.
+	 */
+	public final int cx, cy;
+
+	/**
+	 * Version of the chunk before and after the delta.
+	 */
+	public final int from, to;
+
+	/**
+	 * Place of every tile inside of the chunk (<code>x + y * SIZE</code>),
+	 * from smallest to largest.
+	 */
+	public final short[] cells;
+
+	/**
+	 * New ID of every tile in {@link TileDelta#cells}.
+	 */
+	public final byte[] ids;
+
+	/**
+	 * Creates a delta.
+	 *
+	 * @param cx
+	 *            X of the chunk.
+	 * @param cy
+	 *            Y of the chunk.
+	 * @param from
+	 *            Version of the chunk before.
+	 * @param to
+	 *            Version of the chunk after.
+	 * @param cells
+	 *            Places of the tiles inside of the chunk, smallest first.
+	 * @param ids
+	 *            New IDs of the tiles.
+	 */
+	public TileDelta(int cx, int cy, int from, int to, short[] cells,
+			byte[] ids) {
+		this.cx = cx;
+		this.cy = cy;
+		this.from = from;
+		this.to = to;
+		this.cells = cells;
+		this.ids = ids;
+	}
+
+	/**
+	 * Checks if every tile is inside of a chunk and every ID belongs to a
+	 * {@link Tile}.
+	 *
+	 * @return <code>True</code> if the delta can be used.
+	 */
+	public boolean isValid() {
+		if ((cells.length != ids.length) || (to <= from)) {
+			return false;
+		}
+		for (int i = 0; i < cells.length; i++) {
+			if ((cells[i] < 0) || (cells[i] >= (Chunk.SIZE * Chunk.SIZE))
+					|| (ids[i] < 0) || (Tile.tiles[ids[i]] == null)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Puts the new tiles in a chunk that is at {@link TileDelta#from}. The
+	 * chunk ends up at {@link TileDelta#to}.
+	 *
+	 * @param chunk
+	 *            The chunk.
+	 */
+	public void apply(Chunk chunk) {
+		for (int i = 0; i < cells.length; i++) {
+			chunk.fillRow(cells[i] & Chunk.MASK, cells[i] >> Chunk.SHIFT, ids,
+					i, 1);
+		}
+		chunk.setVersion(to);
+	}
+
+	/**
+	 * Makes deltas from the changes to a chunk. Every change raised the
+	 * version of the chunk by one. If too many tiles changed for one delta,
+	 * more than one is made, one after the other.
+	 *
+	 * @param chunk
+	 *            The chunk, with every change done.
+	 * @param from
+	 *            Version of the chunk before the first change.
+	 * @param changes
+	 *            Place of the tile of every change, in the order they were
+	 *            done.
+	 * @param count
+	 *            Amount of changes.
+	 * @return The deltas.
+	 */
+	public static List<TileDelta> of(Chunk chunk, int from, short[] changes,
+			int count) {
+		// Index of the last change of every tile.
+		final int[] last = new int[Chunk.SIZE * Chunk.SIZE];
+		Arrays.fill(last, -1);
+		for (int i = 0; i < count; i++) {
+			last[changes[i]] = i;
+		}
+		final List<TileDelta> deltas = new ArrayList<>();
+		final short[] cells = new short[MAX_TILES];
+		int size = 0;
+		int start = from;
+		for (int i = 0; i < count; i++) {
+			if (last[changes[i]] != i) {
+				continue;
+			}
+			cells[size++] = changes[i];
+			if ((size == MAX_TILES) || (i == (count - 1))) {
+				deltas.add(make(chunk, start, from + i + 1, cells, size));
+				start = from + i + 1;
+				size = 0;
+			}
+		}
+		return deltas;
+	}
+
+	/**
+	 * Helper method that makes a delta with the current IDs of some tiles of
+	 * a chunk.
+	 */
+	private static TileDelta make(Chunk chunk, int from, int to,
+			short[] cells, int size) {
+		final short[] sorted = Arrays.copyOf(cells, size);
+		Arrays.sort(sorted);
+		final byte[] ids = new byte[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = chunk.getTile(sorted[i] & Chunk.MASK,
+					sorted[i] >> Chunk.SHIFT);
+		}
+		return new TileDelta(chunk.cx, chunk.cy, from, to, sorted, ids);
+	}
+}
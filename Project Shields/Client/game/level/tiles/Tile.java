@@ -4,6 +4,8 @@ import game.gfx.Colors;
 import game.gfx.Screen;
 import game.level.Level;
 
+import java.util.Arrays;
+
 /**
  * This class represents Tiles that exist within the map of a game. A tile is an
  * object that is static and moves with the map. Some tiles have the ability to
@@ -71,6 +73,32 @@ public abstract class Tile {
 	public static final Tile GUI = new BaseTile(11, 0, 1, Colors.get(000, 111,
 			222, 555), 0xFF808080);
 
+	/**
+	 * Floors that mark where a team spawns or keeps its flag base. They look
+	 * like {@link Tile#FLOOR} and are found once when the level is loaded.
+	 * Marker IDs are kept above the IDs of every other tile.
+	 *
+	 * @see game.level.LevelMetadata
+	 */
+	public static final Tile GREEN_SPAWN = new BaseTile(12, 1, 0, Colors.get(
+			222, 110, 210, 320), 0xFF00FF00),
+			RED_SPAWN = new BaseTile(13, 1, 0, Colors.get(222, 110, 210, 320),
+					0xFFFF0000),
+			GREEN_FLAG = new BaseTile(14, 1, 0, Colors.get(222, 110, 210, 320),
+					0xFF008000),
+			RED_FLAG = new BaseTile(15, 1, 0, Colors.get(222, 110, 210, 320),
+					0xFF800000);
+
+	/**
+	 * Hash table from level colors to tile IDs, made the first time a color
+	 * is looked up. Keys are in {@link Tile#colorKeys} and IDs in
+	 * {@link Tile#colorIds} (-1 for an empty spot). Thrown away when a new
+	 * tile is made. The IDs are always set before the keys, so a thread
+	 * that sees the keys also sees the IDs.
+	 */
+	private static volatile int[] colorKeys;
+	private static int[] colorIds;
+
 	/**
 	 * Unique ID of the type of tile this is.
 	 */
@@ -104,6 +132,74 @@ public abstract class Tile {
 		solid = isSolid;
 		this.levelColor = levelColor;
 		tiles[id] = this;
+		colorKeys = null;
+	}
+
+	/**
+	 * Finds the tile that has a color in the PNG image. If more than one tile
+	 * has the color, the one with the lowest ID is used.
+	 *
+	 * @param levelColor
+	 *            Color of a pixel in the PNG image.
+	 * @return ID of the tile, or the ID of {@link Tile#VOID} if no tile has
+	 *         the color.
+	 */
+	public static byte getIdForColor(int levelColor) {
+		int[] keys = colorKeys;
+		int[] ids = colorIds;
+		if (keys == null) {
+			buildColorTable();
+			keys = colorKeys;
+			ids = colorIds;
+		}
+		final int mask = keys.length - 1;
+		for (int i = hashColor(levelColor) & mask;; i = (i + 1) & mask) {
+			if (ids[i] < 0) {
+				return VOID.getId();
+			}
+			if (keys[i] == levelColor) {
+				return (byte) ids[i];
+			}
+		}
+	}
+
+	/**
+	 * Helper method that fills the color hash table from {@link Tile#tiles}.
+	 * The table is kept at most a quarter full so lookups rarely have to
+	 * look past the first spot.
+	 */
+	private static synchronized void buildColorTable() {
+		if (colorKeys != null) {
+			return;
+		}
+		final int[] keys = new int[tiles.length * 4];
+		final int[] ids = new int[keys.length];
+		Arrays.fill(ids, -1);
+		final int mask = keys.length - 1;
+		for (final Tile t : tiles) {
+			if (t == null) {
+				continue;
+			}
+			int i = hashColor(t.getLevelColor()) & mask;
+			while ((ids[i] >= 0) && (keys[i] != t.getLevelColor())) {
+				i = (i + 1) & mask;
+			}
+			if (ids[i] < 0) {
+				keys[i] = t.getLevelColor();
+				ids[i] = t.getId() & 0xFF;
+			}
+		}
+		colorIds = ids;
+		colorKeys = keys;
+	}
+
+	/**
+	 * Helper method that mixes the bits of a color so close colors land far
+	 * apart in the table.
+	 */
+	private static int hashColor(int color) {
+		final int h = color * 0x9E3779B9;
+		return h ^ (h >>> 16);
 	}
 
 	/**
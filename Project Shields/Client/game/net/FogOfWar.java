@@ -0,0 +1,387 @@
+package game.net;
+
+import game.Game;
+import game.entities.Bullet;
+import game.entities.Landmine;
+import game.entities.PlayerMP;
+import game.net.packets.Packet02Move;
+import game.net.packets.Packet05Damage;
+import game.net.packets.Packet06Bullet;
+import game.net.packets.Packet07Mine;
+import game.net.packets.Packet10Destroy;
+import game.utils.Debug;
+import game.utils.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which clients the {@link GameServer} sends moves, bullets and
+ * mines to, so players only hear about what their team can see.
+ * <p>
+ * A team sees a player if any of its players has a clear line (see
+ * {@link game.level.Level#raycast(int[], int, double[])}) from the middle of
+ * its tank to the middle or a corner of the other tank. Moves of players a
+ * team can not see are not sent to it, and a player is sent again as soon
+ * as the team sees it. Bullets are sent to a team once it can see any part
+ * of the path the bullet has left to fly. Mines are only ever sent to the
+ * team of the player that placed them, so the server sets them off itself.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class FogOfWar {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "Fog";
+
+	/**
+	 * Nanoseconds between ticks of the {@link Game}, used to find where a
+	 * bullet is now.
+	 */
+	private static final double NS_PER_TICK = 1000000000D / 60D;
+
+	/**
+	 * Pixels between the points of a bullet path that are looked at.
+	 */
+	private static final int PATH_STEP = 16;
+
+	/**
+	 * Moves of a {@link Bullet} in every direction (up, down, left, right).
+	 */
+	private static final int[] DIR_X = { 0, 0, -1, 1 }, DIR_Y = { -1, 1, 0,
+			0 };
+
+	private final GameServer server;
+	private final Game game;
+	private final List<PlayerMP> players;
+
+	/**
+	 * Players every team can see, by team.
+	 */
+	private final Map<String, Set<String>> seen = new HashMap<>();
+
+	/**
+	 * Bullets that are still flying, and mines that are on the ground.
+	 */
+	private final List<Shot> shots = new ArrayList<>();
+	private final Map<Integer, Packet07Mine> mines = new HashMap<>();
+
+	/**
+	 * Work space for {@link FogOfWar#sees(String, int[], int)}.
+	 */
+	private int[] lines = new int[64];
+	private double[] clear = new double[16];
+
+	/**
+	 * Creates the fog of war of a server.
+	 *
+	 * @param server
+	 *            Server that sends the packets.
+	 * @param game
+	 *            Game with the level of the server.
+	 * @param players
+	 *            Connected players of the server. Only read.
+	 */
+	public FogOfWar(GameServer server, Game game, List<PlayerMP> players) {
+		this.server = server;
+		this.game = game;
+		this.players = players;
+	}
+
+	/**
+	 * Sends a move of a player to its team and to every team that can see
+	 * it. The players the team of the mover can see after the move are sent
+	 * to it, and so are bullets it can see now. Sets off enemy mines the
+	 * player ran over.
+	 *
+	 * @param mover
+	 *            The player, already at its new position.
+	 * @param packet
+	 *            The move.
+	 */
+	public synchronized void moved(PlayerMP mover, Packet02Move packet) {
+		final String team = mover.getTeam();
+		final int[] target = corners(mover);
+		for (final String other : teams()) {
+			if (other.equals(team) || see(other, mover, sees(other, target, 5))) {
+				sendToTeam(packet.getData(), other, mover.getUsername());
+			}
+		}
+		for (final PlayerMP enemy : players) {
+			if (enemy.getTeam().equals(team)) {
+				continue;
+			}
+			final boolean hidden = !seen(team).contains(enemy.getUsername());
+			if (see(team, enemy, sees(team, corners(enemy), 5)) && hidden) {
+				final Packet02Move state = new Packet02Move(
+						enemy.getUsername(), enemy.x, enemy.y,
+						enemy.isMoving, enemy.getMovingDir(), enemy.getFlag());
+				sendToTeam(state.getData(), team, null);
+			}
+		}
+		revealShots(team);
+		triggerMines(mover);
+	}
+
+	/**
+	 * Sends a bullet to the team that fired it and to every team that can
+	 * see the shooter or any of the path of the bullet. Other teams get it
+	 * when they see it.
+	 *
+	 * @param packet
+	 *            The bullet, with its ID set.
+	 */
+	public synchronized void fired(Packet06Bullet packet) {
+		final Shot shot = new Shot(packet);
+		final PlayerMP shooter = server.getPlayerMP(packet.getUsername());
+		for (final String team : teams()) {
+			if (team.equals(packet.getTeam())
+					|| ((shooter != null) && sees(team, corners(shooter), 5))
+					|| shot.seenBy(team, 0)) {
+				shot.sent.add(team);
+				sendToTeam(packet.getData(), team, null);
+			}
+		}
+		shots.add(shot);
+	}
+
+	/**
+	 * Sends a mine to the team that placed it, and keeps it to set it off.
+	 *
+	 * @param packet
+	 *            The mine, with its ID set.
+	 */
+	public synchronized void placed(Packet07Mine packet) {
+		mines.put(packet.getID(), packet);
+		sendToTeam(packet.getData(), packet.getTeam(), null);
+	}
+
+	/**
+	 * Sends a destroyed object to the clients that know about it.
+	 *
+	 * @param packet
+	 *            The destroy.
+	 */
+	public synchronized void destroyed(Packet10Destroy packet) {
+		final Packet07Mine mine = mines.remove(packet.getID());
+		if (mine == null) {
+			server.sendDataToAllClients(packet.getData());
+		} else {
+			sendToTeam(packet.getData(), mine.getTeam(), null);
+		}
+	}
+
+	/**
+	 * Forgets a player that left, and its mines.
+	 *
+	 * @param username
+	 *            Username of the player.
+	 */
+	public synchronized void left(String username) {
+		for (final Set<String> players : seen.values()) {
+			players.remove(username);
+		}
+		final Iterator<Packet07Mine> it = mines.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().getUsername().equals(username)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Forgets every bullet, mine and seen player, when a new game starts.
+	 */
+	public synchronized void reset() {
+		seen.clear();
+		shots.clear();
+		mines.clear();
+	}
+
+	/**
+	 * Helper method that remembers if a team sees a player.
+	 *
+	 * @return <code>sees</code>.
+	 */
+	private boolean see(String team, PlayerMP player, boolean sees) {
+		if (sees) {
+			seen(team).add(player.getUsername());
+		} else {
+			seen(team).remove(player.getUsername());
+		}
+		return sees;
+	}
+
+	private Set<String> seen(String team) {
+		Set<String> set = seen.get(team);
+		if (set == null) {
+			set = new HashSet<>();
+			seen.put(team, set);
+		}
+		return set;
+	}
+
+	/**
+	 * Helper method that gets every team with a connected player.
+	 */
+	private Set<String> teams() {
+		final Set<String> teams = new HashSet<>();
+		for (final PlayerMP p : players) {
+			teams.add(p.getTeam());
+		}
+		return teams;
+	}
+
+	/**
+	 * Helper method that gets the middle and the corners of a tank, as X and
+	 * Y pairs.
+	 */
+	private static int[] corners(PlayerMP p) {
+		return new int[] { p.x + 16, p.y + 16, p.x, p.y, p.x + 31, p.y,
+				p.x, p.y + 31, p.x + 31, p.y + 31 };
+	}
+
+	/**
+	 * Helper method that checks if any player of a team has a clear line to
+	 * any of some points.
+	 */
+	private boolean sees(String team, int[] points, int count) {
+		int lineCount = 0;
+		for (final PlayerMP p : players) {
+			if (!p.getTeam().equals(team)) {
+				continue;
+			}
+			for (int i = 0; i < count; i++) {
+				if (((lineCount + 1) * 4) > lines.length) {
+					lines = Arrays.copyOf(lines, lines.length * 2);
+				}
+				lines[lineCount * 4] = p.x + 16;
+				lines[(lineCount * 4) + 1] = p.y + 16;
+				lines[(lineCount * 4) + 2] = points[i * 2];
+				lines[(lineCount * 4) + 3] = points[(i * 2) + 1];
+				lineCount++;
+			}
+		}
+		if (clear.length < lineCount) {
+			clear = new double[lines.length / 4];
+		}
+		game.level.raycast(lines, lineCount, clear);
+		for (int i = 0; i < lineCount; i++) {
+			if (clear[i] >= 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Helper method that sends bullets a team can now see, from where they
+	 * are now.
+	 */
+	private void revealShots(String team) {
+		final long now = System.nanoTime();
+		final Iterator<Shot> it = shots.iterator();
+		while (it.hasNext()) {
+			final Shot shot = it.next();
+			final int flown = (int) ((now - shot.time) / NS_PER_TICK)
+					* Bullet.SPEED;
+			if (flown >= shot.length) {
+				it.remove();
+			} else if (!shot.sent.contains(team) && shot.seenBy(team, flown)) {
+				shot.sent.add(team);
+				final Packet06Bullet packet = shot.packet;
+				final int dir = packet.getDirection();
+				sendToTeam(new Packet06Bullet(packet.getUsername(),
+						packet.getID(), packet.getX() + (DIR_X[dir] * flown),
+						packet.getY() + (DIR_Y[dir] * flown), dir,
+						packet.getTeam()).getData(), team, null);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sets off the mines of other teams a player is on,
+	 * like {@link game.entities.Landmine#tick()} does for a local player.
+	 */
+	private void triggerMines(PlayerMP p) {
+		final Iterator<Packet07Mine> it = mines.values().iterator();
+		while (it.hasNext()) {
+			final Packet07Mine mine = it.next();
+			if (!mine.getTeam().equals(p.getTeam())
+					&& Landmine.overlaps(mine.getX(), mine.getY()
+							- Landmine.RAISE, p.x, p.y)) {
+				it.remove();
+				Debug.out(Type.DEBUG, CLASS, p.getUsername() + " set off mine "
+						+ mine.getID() + ".");
+				new Packet05Damage(p.getUsername(), Landmine.DAMAGE)
+						.writeData(server);
+				sendToTeam(new Packet10Destroy(p.getUsername(), mine.getID())
+						.getData(), mine.getTeam(), null);
+			}
+		}
+	}
+
+	/**
+	 * Helper method that sends data to every player of a team, but one.
+	 */
+	private void sendToTeam(byte[] data, String team, String except) {
+		for (final PlayerMP p : players) {
+			if (p.getTeam().equals(team) && !p.getUsername().equals(except)) {
+				server.sendData(data, p.ipAddress, p.port);
+			}
+		}
+	}
+
+	/**
+	 * A bullet that is still flying, and the teams it was sent to.
+	 */
+	private class Shot {
+
+		private final Packet06Bullet packet;
+		private final long time = System.nanoTime();
+		private final Set<String> sent = new HashSet<>();
+
+		/**
+		 * Pixels the bullet flies before it hits a wall.
+		 */
+		private final int length;
+
+		private Shot(Packet06Bullet packet) {
+			this.packet = packet;
+			final int dir = packet.getDirection();
+			// Bullets start 4 pixels above where they were fired from.
+			final int x = packet.getX() + (Bullet.SIZE / 2);
+			final int y = (packet.getY() - 4) + (Bullet.SIZE / 2);
+			final int far = (Math.max(game.level.width, game.level.height) + 1) * 32;
+			length = (int) (game.level.raycast(x, y, x + (DIR_X[dir] * far), y
+					+ (DIR_Y[dir] * far)) * far);
+		}
+
+		/**
+		 * Checks if a team can see any of the path left after the bullet
+		 * flew some pixels.
+		 */
+		private boolean seenBy(String team, int flown) {
+			final int dir = packet.getDirection();
+			final int x = packet.getX() + (Bullet.SIZE / 2);
+			final int y = (packet.getY() - 4) + (Bullet.SIZE / 2);
+			final int count = ((length - flown) / PATH_STEP) + 1;
+			final int[] points = new int[count * 2];
+			for (int i = 0; i < count; i++) {
+				final int along = Math.min(flown + (i * PATH_STEP), length);
+				points[i * 2] = x + (DIR_X[dir] * along);
+				points[(i * 2) + 1] = y + (DIR_Y[dir] * along);
+			}
+			return sees(team, points, count);
+		}
+	}
+}
@@ -5,8 +5,9 @@ import game.entities.Bullet;
 import game.entities.Entity;
 import game.entities.FlagBase;
 import game.entities.Landmine;
-import game.entities.Player;
 import game.entities.PlayerMP;
+import game.level.LevelGenerator;
+import game.level.LevelMetadata;
 import game.net.packets.Packet;
 import game.net.packets.Packet.PacketTypes;
 import game.net.packets.Packet00Login;
@@ -19,8 +20,10 @@ import game.net.packets.Packet06Bullet;
 import game.net.packets.Packet07Mine;
 import game.net.packets.Packet10Destroy;
 import game.net.packets.Packet11StartGame;
+import game.net.packets.Packet12Tiles;
 import game.net.packets.Packet13Score;
 import game.net.packets.Packet77Level;
+import game.net.packets.Packet78Chunk;
 import game.utils.Debug;
 import game.utils.Type;
 
@@ -188,14 +191,8 @@ public class GameClient extends Thread {
 					+ " has left the game!");
 			game.level.removePlayerMP(((Packet01Disconnect) packet)
 					.getUsername());
-			for (final Entity e : game.level.getEntities()) {
-				if (e instanceof Landmine) {
-					if (((Landmine) e).getUsername().equals(
-							((Packet01Disconnect) packet).getUsername())) {
-						e.markForDelete();
-					}
-				}
-			}
+			game.level.destroyMines(((Packet01Disconnect) packet)
+					.getUsername());
 			break;
 		case MOVE:
 			packet = new Packet02Move(data);
@@ -239,6 +236,20 @@ public class GameClient extends Thread {
 			packet = new Packet77Level(data);
 			downloadLevel((Packet77Level) packet, address, port);
 			break;
+		case TILES:
+			packet = new Packet12Tiles(data);
+			if (packet.isValid()) {
+				game.level.receiveTiles(((Packet12Tiles) packet).getDelta());
+			}
+			break;
+		case CHUNK:
+			packet = new Packet78Chunk(data);
+			if (packet.isValid()) {
+				final Packet78Chunk chunk = (Packet78Chunk) packet;
+				game.level.receiveChunk(chunk.getChunkX(), chunk.getChunkY(),
+						chunk.getVersion(), chunk.getRow(), chunk.getTiles());
+			}
+			break;
 		}
 	}
 
@@ -336,7 +347,7 @@ public class GameClient extends Thread {
 				|| packet.getTeam().equals(game.getTeam())) {
 			immune = true;
 		}
-		final Entity bullet = new Bullet(game.level, packet.getID(),
+		final Entity bullet = Bullet.obtain(game.level, packet.getID(),
 				packet.getX(), packet.getY(), packet.getDirection(), immune);
 		game.level.addLowestEntity(bullet);
 	}
@@ -354,7 +365,7 @@ public class GameClient extends Thread {
 				|| packet.getTeam().equals(game.getTeam())) {
 			immune = true;
 		}
-		final Entity mine = new Landmine(game.level, packet.getID(),
+		final Entity mine = Landmine.obtain(game.level, packet.getID(),
 				packet.getUsername(), packet.getX(), packet.getY(), immune,
 				packet.getTeam());
 		if (packet.getUsername().equals(game.getUsername())) {
@@ -376,17 +387,7 @@ public class GameClient extends Thread {
 	 *            {@link Packet10Destroy} packet sent from the server
 	 */
 	private void destroyObject(Packet10Destroy packet) {
-		boolean found = false;
-		for (final Entity e : game.level.getEntities()) {
-			if (e.getID() == packet.getID()) {
-				e.markForDelete();
-				found = true;
-			}
-		}
-		if (!found) {
-			Debug.out(Type.WARNING, CLASS, "The ID " + packet.getID()
-					+ " was not found!");
-		}
+		game.level.destroy(packet.getID());
 	}
 
 	/**
@@ -397,22 +398,19 @@ public class GameClient extends Thread {
 	 *            {@link Packet11StartGame} packet sent from the server
 	 */
 	private void startGame(Packet11StartGame packet) {		
-		final Packet02Move move = new Packet02Move(game.getUsername(), (game
-				.getTeam().equals("GREEN") ? 100
-				: (game.level.width * 32) - 100), (game.getTeam().equals(
-				"GREEN") ? 100 : (game.level.height * 32) - 100), false, 0,
-				false);
+		final Packet02Move move = moveToSpawn();
 		sendData(move.getData());
 		game.player.x = move.getX();
 		game.player.y = move.getY();
 		game.player.setMoving(move.isMoving());
 		game.player.setMovingDir(move.getMovingDir());
 		if (packet.getGameMode().equals("CTF")) {
-			final FlagBase green = new FlagBase(game.level, -2, 200, 200,
+			final LevelMetadata places = game.level.getMetadata();
+			final FlagBase green = new FlagBase(game.level, -2,
+					places.getFlagX("GREEN"), places.getFlagY("GREEN"),
 					"GREEN");
 			final FlagBase red = new FlagBase(game.level, -2,
-					(game.level.width * 32) - 200,
-					(game.level.height * 32) - 200, "RED");
+					places.getFlagX("RED"), places.getFlagY("RED"), "RED");
 			game.level.addLowestEntity(green);
 			game.level.addLowestEntity(red);
 			game.setGameRunning(true);
@@ -430,14 +428,7 @@ public class GameClient extends Thread {
 	 */
 	private void handleScore(Packet13Score packet) {
 		if(game.currentRunningGamemode.equals("CTF")) {
-			for(Entity e : game.level.getEntities()) {
-				if(e instanceof Player) {
-					Player p = (Player)e;
-					if(p.getUsername().equals(packet.getUsername())) {
-						p.setScore(packet.getScore());
-					}
-				}
-			}
+			game.level.setScore(packet.getUsername(), packet.getScore());
 		} else {
 			
 		}
@@ -447,18 +438,26 @@ public class GameClient extends Thread {
 		if(game.socketServerIsNull() == true) { //Never attempt to download if client is host.
 			try {
 				System.out.println(packet.getWidth()+","+ packet.getHeight());
-				Thread.sleep(100);
-				 imageSocket = new Socket(address, port);
-				 downloadedLevel = ImageIO.read(imageSocket.getInputStream());
-				 imageSocket.close();
-				 game.level.regenLevel(packet.getPath(),
-						 downloadedLevel.getSubimage(0, 0, packet.getWidth(), packet.getHeight()));
+				if (LevelGenerator.isGenerated(packet.getPath())) {
+					// The level is made here from the seed. Chunks that
+					// changed since come after as Packet78Chunks.
+					game.level.regenLevel(packet.getPath());
+				} else if (packet.isStreamed()) {
+					// Chunks are asked for by the level as the player moves.
+					game.level.regenStreamed(packet.getPath(),
+							packet.getWidth(), packet.getHeight(),
+							LevelMetadata.decode(packet.getMetadata(),
+									packet.getWidth(), packet.getHeight()));
+				} else {
+					Thread.sleep(100);
+					 imageSocket = new Socket(address, port);
+					 downloadedLevel = ImageIO.read(imageSocket.getInputStream());
+					 imageSocket.close();
+					 game.level.regenLevel(packet.getPath(),
+							 downloadedLevel.getSubimage(0, 0, packet.getWidth(), packet.getHeight()));
+				}
 					
-				 final Packet02Move move = new Packet02Move(game.getUsername(), (game
-							.getTeam().equals("GREEN") ? 100
-							: (game.level.width * 32) - 100), (game.getTeam().equals(
-							"GREEN") ? 100 : (game.level.height * 32) - 100), false, 0,
-							false);
+				final Packet02Move move = moveToSpawn();
 				sendData(move.getData());
 				game.player.x = move.getX();
 				game.player.y = move.getY();
@@ -470,6 +469,18 @@ public class GameClient extends Thread {
 		}
 	}
 
+	/**
+	 * Helper method that makes a move of the player to one of the spawns of
+	 * its team.
+	 */
+	private Packet02Move moveToSpawn() {
+		final LevelMetadata places = game.level.getMetadata();
+		final String team = game.getTeam();
+		final int spawn = places.pickSpawn(team);
+		return new Packet02Move(game.getUsername(), places.getSpawnX(team,
+				spawn), places.getSpawnY(team, spawn), false, 0, false);
+	}
+
 	/**
 	 * Sends an byte array of data over the Internet.
 	 * @param data
@@ -2,6 +2,10 @@ package game.net;
 
 import game.Game;
 import game.entities.PlayerMP;
+import game.level.Chunk;
+import game.level.LevelGenerator;
+import game.level.LevelMetadata;
+import game.level.TileDelta;
 import game.net.packets.Packet;
 import game.net.packets.Packet.PacketTypes;
 import game.net.packets.Packet00Login;
@@ -14,8 +18,11 @@ import game.net.packets.Packet06Bullet;
 import game.net.packets.Packet07Mine;
 import game.net.packets.Packet10Destroy;
 import game.net.packets.Packet11StartGame;
+import game.net.packets.Packet12Tiles;
 import game.net.packets.Packet13Score;
 import game.net.packets.Packet77Level;
+import game.net.packets.Packet78Chunk;
+import game.net.packets.Packet79ChunkRequest;
 import game.utils.Debug;
 import game.utils.Type;
 
@@ -27,6 +34,9 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.imageio.ImageIO;
 
@@ -87,6 +97,25 @@ public class GameServer extends Thread {
 	 * game mode.
 	 */
 	private Packet11StartGame runningGame = null;
+
+	/**
+	 * Decides who gets moves, bullets and mines.
+	 */
+	private final FogOfWar fog;
+
+	/**
+	 * Sends chunks copied on the tick, so neither the tick nor this thread
+	 * waits for the packets to go out.
+	 */
+	private final ExecutorService chunkSender = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r, "ChunkSender");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
 	
 	/**
 	 * Help file used when the player types /help.
@@ -104,6 +133,7 @@ public class GameServer extends Thread {
 	public GameServer(Game game) {
 		Debug.out(Type.INFO, CLASS, "Thread started. Server running.");
 		this.game = game;
+		fog = new FogOfWar(this, game, connectedPlayers);
 		try {
 			socket = new DatagramSocket(9714); // Listen on this port, m8
 			Debug.out(Type.DEBUG, CLASS, "Starting server.");
@@ -170,9 +200,12 @@ public class GameServer extends Thread {
 			}
 			Debug.out(Type.INFO, CLASS, "Obtained player ID: "
 					+ ((Packet00Login) packet).getID());
-			final PlayerMP player = new PlayerMP(game.level, 100, 100,
+			final String team = ((Packet00Login) packet).getTeam();
+			final LevelMetadata places = game.level.getMetadata();
+			final PlayerMP player = new PlayerMP(game.level,
+					places.getSpawnX(team, 0), places.getSpawnY(team, 0),
 					((Packet00Login) packet).getID(), packet.getUsername(),
-					address, port, ((Packet00Login) packet).getTeam());
+					address, port, team);
 			//Adds a new connection to the game
 			addConnection(player, (Packet00Login) packet);
 			sendNoticeMessage(packet.getUsername(), 00, address, port);
@@ -182,9 +215,15 @@ public class GameServer extends Thread {
 						new Packet77Level(((Packet00Login) packet).getUsername(), 
 								game.level.getPath(), 
 								game.level.width, 
-								game.level.height);
+								game.level.height,
+								game.level.isStreamed(),
+								streamedMetadata());
 				level.writeData(this, address, port);
-				sendImageToClient(game.level.getImage());
+				if (LevelGenerator.isGenerated(level.getPath())) {
+					sendChangedChunks(level.getPath(), address, port);
+				} else if (!level.isStreamed()) {
+					sendImageToClient(game.level.getImage());
+				}
 			}
 			if (runningGame != null) {
 				sendData(runningGame.getData(), address, port);
@@ -266,6 +305,13 @@ public class GameServer extends Thread {
 			}
 			handleScore((Packet13Score) packet);
 			break;
+		case CHUNKREQUEST:
+			packet = new Packet79ChunkRequest(data);
+			if (!packet.isValid() || !acceptablePacket(packet)) {
+				break;
+			}
+			sendChunks((Packet79ChunkRequest) packet, address, port);
+			break;
 		}
 	}
 
@@ -307,11 +353,13 @@ public class GameServer extends Thread {
 		connectedPlayers.remove(index);
 		index = getAcceptedIndex(packet.getUsername());
 		acceptablePackets.remove(index);
+		fog.left(packet.getUsername());
 		packet.writeData(this);
 	}
 
 	/**
-	 * Handles the movement of the players.
+	 * Handles the movement of the players. The move is only sent to the
+	 * players that can see it, see {@link FogOfWar}.
 	 * @param packet Packet02Move packet.
 	 */
 	private void handleMove(Packet02Move packet) {
@@ -322,7 +370,8 @@ public class GameServer extends Thread {
 			player.y = packet.getY();
 			player.setMoving(packet.isMoving());
 			player.setMovingDir(packet.getMovingDir());
-			packet.writeData(this);
+			player.setFlag(packet.getFlag());
+			fog.moved(player, packet);
 		}
 	}
 
@@ -474,29 +523,30 @@ public class GameServer extends Thread {
 	}
 
 	/**
-	 * Gets a new ID for a bullet and sends it to all clients.
+	 * Gets a new ID for a bullet and sends it to the clients that can see it.
 	 * @param packet Packet06Bullet packet.
 	 */
 	private void createBullet(Packet06Bullet packet) {
 		packet.setID(getUniqueID());
-		packet.writeData(this);
+		fog.fired(packet);
 	}
 
 	/**
-	 * Gets a new ID for a Landmine and sends it to all clients.
+	 * Gets a new ID for a Landmine and sends it to the team that placed it.
 	 * @param packet Packet07Mine packet.
 	 */
 	private void createMine(Packet07Mine packet) {
 		packet.setID(getUniqueID());
-		packet.writeData(this);
+		fog.placed(packet);
 	}
 
 	/**
-	 * Reflects a Packet10Destroy packet sent from a client to all of the clients.
+	 * Reflects a Packet10Destroy packet sent from a client to all of the
+	 * clients that know about the object.
 	 * @param packet Packet10Destroy packet.
 	 */
 	private void destroyObject(Packet10Destroy packet) {
-		packet.writeData(this);
+		fog.destroyed(packet);
 	}
 
 	/**
@@ -507,16 +557,24 @@ public class GameServer extends Thread {
 	 * @param systemMap Directory of the map to change to.
 	 */
 	public void startGame(String mode, String map, String systemMap) {
+		// Generated maps get their seed here, clients make the same level.
+		systemMap = LevelGenerator.resolve(systemMap);
 		game.level.regenLevel(systemMap);
+		fog.reset();
 		Debug.out(Type.WARNING, CLASS, "SWITCHING TO: " + mode + " " + map
 				+ " at " + systemMap);
 		Packet77Level level = 
 				new Packet77Level("SERVER", 
 						game.level.getPath(), 
 						game.level.width, 
-						game.level.height);
+						game.level.height,
+						game.level.isStreamed(),
+						streamedMetadata());
 		level.writeData(this);
-		sendImageToAllClients(game.level.getImage());
+		if (!level.isStreamed()
+				&& !LevelGenerator.isGenerated(level.getPath())) {
+			sendImageToAllClients(game.level.getImage());
+		}
 		try {
 			Thread.sleep(100);
 		} catch (Exception e) {
@@ -533,6 +591,124 @@ public class GameServer extends Thread {
 		runningGame.writeData(this);
 	}
 
+	/**
+	 * Helper method that gets the spawns and flag bases to send with a
+	 * streamed level, whose clients can not find the markers themselves.
+	 */
+	private String streamedMetadata() {
+		return game.level.isStreamed() ? game.level.getMetadata().encode()
+				: null;
+	}
+
+	/**
+	 * Sends the chunks a client asked for. The chunks can only be read while
+	 * the level ticks, so they are copied on the next tick and sent by the
+	 * {@link GameServer#chunkSender}. This thread never waits for the tick,
+	 * so other packets are not held up.
+	 * @param packet Packet79ChunkRequest packet.
+	 * @param address Address of the client.
+	 * @param port Port of the client.
+	 */
+	private void sendChunks(final Packet79ChunkRequest packet,
+			final InetAddress address, final int port) {
+		game.level.runOnTick(new Runnable() {
+			@Override
+			public void run() {
+				final List<Packet78Chunk> halves = new ArrayList<>();
+				final int[] chunks = packet.getChunks();
+				for (int i = 0; i < chunks.length; i += 2) {
+					copyChunk(game.level.getChunk(chunks[i], chunks[i + 1]),
+							halves);
+				}
+				send(halves, address, port);
+			}
+		});
+	}
+
+	/**
+	 * Sends every chunk of a generated level that changed since it was made.
+	 * A client that joins late makes the level from its seed, so without
+	 * these it would not see tiles that were destroyed before it came. The
+	 * chunks are copied on the next tick, after the level the client was
+	 * told about, and skipped if the level was changed again by then.
+	 * @param path Path of the level the client was sent.
+	 * @param address Address of the client.
+	 * @param port Port of the client.
+	 */
+	private void sendChangedChunks(final String path,
+			final InetAddress address, final int port) {
+		game.level.runOnTick(new Runnable() {
+			@Override
+			public void run() {
+				if (!path.equals(game.level.getPath())) {
+					return;
+				}
+				final List<Packet78Chunk> halves = new ArrayList<>();
+				final int chunksWide = (game.level.width + Chunk.MASK)
+						>> Chunk.SHIFT;
+				final int chunksHigh = (game.level.height + Chunk.MASK)
+						>> Chunk.SHIFT;
+				for (int cy = 0; cy < chunksHigh; cy++) {
+					for (int cx = 0; cx < chunksWide; cx++) {
+						final Chunk chunk = game.level.getChunk(cx, cy);
+						if ((chunk != null) && (chunk.getVersion() > 0)) {
+							copyChunk(chunk, halves);
+						}
+					}
+				}
+				Debug.out(Type.DEBUG, CLASS, "Sending " + (halves.size()
+						/ (Chunk.SIZE / Packet78Chunk.ROWS))
+						+ " changed chunks of " + path + ".");
+				send(halves, address, port);
+			}
+		});
+	}
+
+	/**
+	 * Helper method that copies a chunk into packets of
+	 * {@link Packet78Chunk#ROWS} rows. Only call from the thread that ticks
+	 * the level.
+	 */
+	private static void copyChunk(Chunk chunk, List<Packet78Chunk> halves) {
+		if (chunk == null) {
+			return;
+		}
+		for (int row = 0; row < Chunk.SIZE; row += Packet78Chunk.ROWS) {
+			halves.add(new Packet78Chunk("SERVER", chunk.cx, chunk.cy, chunk
+					.getVersion(), row, chunk.copyRows(row,
+					Packet78Chunk.ROWS)));
+		}
+	}
+
+	/**
+	 * Helper method that sends copied chunks to a client on the
+	 * {@link GameServer#chunkSender}.
+	 */
+	private void send(final List<Packet78Chunk> halves,
+			final InetAddress address, final int port) {
+		if (halves.isEmpty()) {
+			return;
+		}
+		chunkSender.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (final Packet78Chunk half : halves) {
+					half.writeData(GameServer.this, address, port);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sends tiles that changed in the level to all of the clients.
+	 * @param deltas Changes from {@link game.level.Level#takeTileDeltas()}.
+	 */
+	public void sendTileDeltas(List<TileDelta> deltas) {
+		for (final TileDelta delta : deltas) {
+			new Packet12Tiles("SERVER", delta).writeData(this);
+		}
+	}
+
 	/**
 	 * Handles a packet when a Score packet is received.
 	 * @param packet Packet13Score packet.
@@ -13,10 +13,19 @@ public abstract class Packet {
 	protected String username;
 	public static final String CLASS = "Packet";
 
+	/**
+	 * Letters used to send small numbers (0 - 63) like tile IDs as one
+	 * character. None of them are a comma or get cut off by
+	 * {@link String#trim()}.
+	 */
+	protected static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			+ "abcdefghijklmnopqrstuvwxyz0123456789+/";
+
 	public static enum PacketTypes {
 		INVALID(-1), LOGIN(00), DISCONNECT(01), MOVE(02), TESTLOGIN(03), CHAT(
 				04), DAMAGE(05), BULLET(06), MINE(07), DESTROY(10), STARTGAME(
-						11), LEVEL(77), SCORE(13);
+						11), TILES(12), LEVEL(77), SCORE(13), CHUNK(78), CHUNKREQUEST(
+								79);
 
 		private int packetId;
 
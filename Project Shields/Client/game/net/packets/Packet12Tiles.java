@@ -0,0 +1,124 @@
+package game.net.packets;
+
+import game.level.Chunk;
+import game.level.TileDelta;
+import game.net.GameClient;
+import game.net.GameServer;
+
+import java.net.InetAddress;
+
+/**
+ * Sends the tiles of a {@link Chunk} that changed, as a {@link TileDelta}.
+ * The tiles are sent as runs next to each other in a row: the X, Y and
+ * length minus one of the run, then the ID of every tile in it. Each is one
+ * letter of {@link Packet#ALPHABET}.
+ *
+ * @author AJ Walter
+ */
+public class Packet12Tiles extends Packet {
+
+	private TileDelta delta;
+
+	public Packet12Tiles(byte[] data) {
+		super(12); // id of the packet.
+		final String[] dataArray = readData(data).split(",");
+		if (dataArray.length == 6) {
+			try {
+				username = dataArray[0];
+				delta = decode(Integer.parseInt(dataArray[1]),
+						Integer.parseInt(dataArray[2]),
+						Integer.parseInt(dataArray[3]),
+						Integer.parseInt(dataArray[4]), dataArray[5]);
+				isValid = (delta != null) && delta.isValid();
+			} catch (final NumberFormatException e) {
+				isValid = false;
+			}
+		} else {
+			isValid = false;
+		}
+	}
+
+	public Packet12Tiles(String username, TileDelta delta) {
+		super(12); // Sending it from the server
+		this.username = username;
+		this.delta = delta;
+	}
+
+	/**
+	 * Helper method that reads the runs of tiles.
+	 */
+	private static TileDelta decode(int cx, int cy, int from, int to,
+			String runs) {
+		final short[] cells = new short[runs.length()];
+		final byte[] ids = new byte[runs.length()];
+		int size = 0;
+		int at = 0;
+		while (at < runs.length()) {
+			if ((at + 3) > runs.length()) {
+				return null;
+			}
+			final int x = ALPHABET.indexOf(runs.charAt(at++));
+			final int y = ALPHABET.indexOf(runs.charAt(at++));
+			final int length = ALPHABET.indexOf(runs.charAt(at++)) + 1;
+			if ((x < 0) || (y < 0) || (length < 1)
+					|| ((x + length) > Chunk.SIZE) || (y >= Chunk.SIZE)
+					|| ((at + length) > runs.length())) {
+				return null;
+			}
+			for (int i = 0; i < length; i++) {
+				cells[size] = (short) ((x + i) + (y << Chunk.SHIFT));
+				ids[size++] = (byte) ALPHABET.indexOf(runs.charAt(at++));
+			}
+		}
+		final short[] exactCells = new short[size];
+		final byte[] exactIds = new byte[size];
+		System.arraycopy(cells, 0, exactCells, 0, size);
+		System.arraycopy(ids, 0, exactIds, 0, size);
+		return new TileDelta(cx, cy, from, to, exactCells, exactIds);
+	}
+
+	@Override
+	public void writeData(GameClient client) {
+		return;
+	}
+
+	@Override
+	public void writeData(GameServer server) {
+		server.sendDataToAllClients(getData());
+	}
+
+	@Override
+	public void writeData(GameServer server, InetAddress address, int port) {
+		server.sendData(getData(), address, port);
+	}
+
+	@Override
+	public byte[] getData() {
+		final StringBuilder data = new StringBuilder(64 + (delta.ids.length * 4));
+		data.append("12").append(username).append(',').append(delta.cx)
+				.append(',').append(delta.cy).append(',').append(delta.from)
+				.append(',').append(delta.to).append(',');
+		int i = 0;
+		while (i < delta.cells.length) {
+			final int start = i;
+			// A run goes on while the next tile is right of this one.
+			while (((i + 1) < delta.cells.length)
+					&& (delta.cells[i + 1] == (delta.cells[i] + 1))
+					&& ((delta.cells[i + 1] & Chunk.MASK) != 0)) {
+				i++;
+			}
+			i++;
+			data.append(ALPHABET.charAt(delta.cells[start] & Chunk.MASK))
+					.append(ALPHABET.charAt(delta.cells[start] >> Chunk.SHIFT))
+					.append(ALPHABET.charAt(i - start - 1));
+			for (int j = start; j < i; j++) {
+				data.append(ALPHABET.charAt(delta.ids[j]));
+			}
+		}
+		return data.toString().getBytes();
+	}
+
+	public TileDelta getDelta() {
+		return delta;
+	}
+}
@@ -10,15 +10,19 @@ public class Packet77Level extends Packet {
 	private String path;
 	private int width;
 	private int height;
+	private boolean streamed;
+	private String metadata;
 	
 	public Packet77Level(byte[] data) {
 		super(77); // id of the packet.
 		final String[] dataArray = readData(data).split(",");
-		if (dataArray.length == 4) {
+		if ((dataArray.length >= 4) && (dataArray.length <= 6)) {
 			username = dataArray[0];
 			path = dataArray[1];
 			width = Integer.parseInt(dataArray[2]);
 			height = Integer.parseInt(dataArray[3]);
+			streamed = (dataArray.length >= 5) && dataArray[4].equals("1");
+			metadata = dataArray.length == 6 ? dataArray[5] : null;
 		} else {
 			isValid = false;
 		}
@@ -32,6 +36,18 @@ public class Packet77Level extends Packet {
 		this.height = height;
 	}
 
+	public Packet77Level(String username, String path, int width, int height,
+			boolean streamed) {
+		this(username, path, width, height);
+		this.streamed = streamed;
+	}
+
+	public Packet77Level(String username, String path, int width, int height,
+			boolean streamed, String metadata) {
+		this(username, path, width, height, streamed);
+		this.metadata = metadata;
+	}
+
 	@Override
 	public void writeData(GameClient client) {
 		client.sendData(getData());
@@ -49,7 +65,13 @@ public class Packet77Level extends Packet {
 
 	@Override
 	public byte[] getData() {
-		return ("77" + username + "," + path + "," + width + "," + height).getBytes();
+		String data = "77" + username + "," + path + "," + width + "," + height;
+		if (metadata != null) {
+			data += (streamed ? ",1," : ",0,") + metadata;
+		} else if (streamed) {
+			data += ",1";
+		}
+		return data.getBytes();
 	}
 	
 	public String getPath() {
@@ -63,4 +85,25 @@ public class Packet77Level extends Packet {
 	public int getHeight() {
 		return height;
 	}
+
+	/**
+	 * Checks if the level is sent in chunks with {@link Packet78Chunk}
+	 * instead of as an image.
+	 *
+	 * @return <code>True</code> if it is.
+	 */
+	public boolean isStreamed() {
+		return streamed;
+	}
+
+	/**
+	 * Gets where the spawns and flag bases of the level are, sent with
+	 * streamed levels since the client does not have every tile.
+	 *
+	 * @return Metadata made by {@link game.level.LevelMetadata#encode()}, or
+	 *         <code>null</code> if it was not sent.
+	 */
+	public String getMetadata() {
+		return metadata;
+	}
 }
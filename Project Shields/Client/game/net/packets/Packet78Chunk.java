@@ -0,0 +1,116 @@
+package game.net.packets;
+
+import game.level.Chunk;
+import game.net.GameClient;
+import game.net.GameServer;
+
+import java.net.InetAddress;
+
+/**
+ * Sends half of a {@link Chunk} of a streamed level to a client. A whole
+ * chunk does not fit in one packet, so it is sent as {@link Packet78Chunk#ROWS}
+ * rows at a time. Every tile is one letter of {@link Packet#ALPHABET}.
+ *
+ * @author AJ Walter
+ */
+public class Packet78Chunk extends Packet {
+
+	/**
+	 * Rows of the chunk in every packet.
+	 */
+	public static final int ROWS = Chunk.SIZE / 2;
+
+	private int cx;
+	private int cy;
+	private int version;
+	private int row;
+	private byte[] tiles;
+
+	public Packet78Chunk(byte[] data) {
+		super(78); // id of the packet.
+		final String[] dataArray = readData(data).split(",");
+		if (dataArray.length == 6) {
+			try {
+				username = dataArray[0];
+				cx = Integer.parseInt(dataArray[1]);
+				cy = Integer.parseInt(dataArray[2]);
+				version = Integer.parseInt(dataArray[3]);
+				row = Integer.parseInt(dataArray[4]);
+				tiles = new byte[dataArray[5].length()];
+				for (int i = 0; i < tiles.length; i++) {
+					final int id = ALPHABET.indexOf(dataArray[5].charAt(i));
+					if (id < 0) {
+						isValid = false;
+					}
+					tiles[i] = (byte) id;
+				}
+				if ((tiles.length != (ROWS * Chunk.SIZE)) || (row < 0)
+						|| (row > (Chunk.SIZE - ROWS))) {
+					isValid = false;
+				}
+			} catch (final NumberFormatException e) {
+				isValid = false;
+			}
+		} else {
+			isValid = false;
+		}
+	}
+
+	public Packet78Chunk(String username, int cx, int cy, int version,
+			int row, byte[] tiles) {
+		super(78); // Sending it from the server
+		this.username = username;
+		this.cx = cx;
+		this.cy = cy;
+		this.version = version;
+		this.row = row;
+		this.tiles = tiles;
+	}
+
+	@Override
+	public void writeData(GameClient client) {
+		return;
+	}
+
+	@Override
+	public void writeData(GameServer server) {
+		server.sendDataToAllClients(getData());
+	}
+
+	@Override
+	public void writeData(GameServer server, InetAddress address, int port) {
+		server.sendData(getData(), address, port);
+	}
+
+	@Override
+	public byte[] getData() {
+		final StringBuilder data = new StringBuilder(tiles.length + 32);
+		data.append("78").append(username).append(',').append(cx).append(',')
+				.append(cy).append(',').append(version).append(',')
+				.append(row).append(',');
+		for (final byte id : tiles) {
+			data.append(ALPHABET.charAt(id));
+		}
+		return data.toString().getBytes();
+	}
+
+	public int getChunkX() {
+		return cx;
+	}
+
+	public int getChunkY() {
+		return cy;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public byte[] getTiles() {
+		return tiles;
+	}
+}
@@ -0,0 +1,84 @@
+package game.net.packets;
+
+import game.level.Chunk;
+import game.net.GameClient;
+import game.net.GameServer;
+
+import java.net.InetAddress;
+
+/**
+ * Asks the server for some {@link Chunk}s of a streamed level. The server
+ * answers with a {@link Packet78Chunk} for every half of every chunk.
+ *
+ * @author AJ Walter
+ */
+public class Packet79ChunkRequest extends Packet {
+
+	/**
+	 * Most chunks asked for in one packet.
+	 */
+	public static final int MAX_CHUNKS = 32;
+
+	/**
+	 * X and Y of every chunk, one after the other.
+	 */
+	private int[] chunks;
+
+	public Packet79ChunkRequest(byte[] data) {
+		super(79); // id of the packet.
+		final String[] dataArray = readData(data).split(",");
+		if ((dataArray.length >= 3) && ((dataArray.length % 2) == 1)
+				&& (dataArray.length <= ((MAX_CHUNKS * 2) + 1))) {
+			try {
+				username = dataArray[0];
+				chunks = new int[dataArray.length - 1];
+				for (int i = 0; i < chunks.length; i++) {
+					chunks[i] = Integer.parseInt(dataArray[i + 1]);
+				}
+			} catch (final NumberFormatException e) {
+				isValid = false;
+			}
+		} else {
+			isValid = false;
+		}
+	}
+
+	public Packet79ChunkRequest(String username, int[] chunks) {
+		super(79); // Sending it from the client
+		this.username = username;
+		this.chunks = chunks;
+	}
+
+	@Override
+	public void writeData(GameClient client) {
+		client.sendData(getData());
+	}
+
+	@Override
+	public void writeData(GameServer server) {
+		return;
+	}
+
+	@Override
+	public void writeData(GameServer server, InetAddress address, int port) {
+		return;
+	}
+
+	@Override
+	public byte[] getData() {
+		final StringBuilder data = new StringBuilder("79").append(username);
+		for (final int c : chunks) {
+			data.append(',').append(c);
+		}
+		return data.toString().getBytes();
+	}
+
+	/**
+	 * Gets the chunks asked for.
+	 *
+	 * @return X and Y of every chunk, one after the other.
+	 */
+	public int[] getChunks() {
+		return chunks;
+	}
+}
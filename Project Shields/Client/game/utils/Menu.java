@@ -4,6 +4,8 @@ import game.gfx.Colors;
 import game.gfx.Font;
 import game.gfx.Screen;
 
+import java.util.Arrays;
+
 /**
  * A menu is a simple  menu that enables players to type options
  * or select one option from a list.
@@ -168,6 +170,23 @@ public class Menu {
 		return selected;
 	}
 
+	/**
+	 * Changes the options of the menu. The selected item stays the same if
+	 * it is still there.
+	 * @param options Array of Strings for the menu to display.
+	 */
+	public void setOptions(String[] options) {
+		this.options = options;
+		typedFields = Arrays.copyOf(typedFields, options.length);
+		for (int i = 0; i < typedFields.length; i++) {
+			if (typedFields[i] == null) {
+				typedFields[i] = "";
+			}
+		}
+		selected = Math.min(selected, input ? options.length : Math.max(
+				options.length - 1, 0));
+	}
+
 	/**
 	 * Return the length of the options.
 	 * @return Length of options list.
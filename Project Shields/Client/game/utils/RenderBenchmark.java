@@ -0,0 +1,195 @@
+package game.utils;
+
+import game.Game;
+import game.entities.Bullet;
+import game.entities.Entity;
+import game.entities.Explode;
+import game.entities.FlagBase;
+import game.entities.Landmine;
+import game.entities.PlayerMP;
+import game.gfx.Colors;
+import game.gfx.Font;
+import game.gfx.Screen;
+import game.gfx.Sprites;
+import game.level.Level;
+import game.level.LevelMetadata;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Renders the game into an offscreen {@link Screen} without opening a window,
+ * and reports how long it took. Used to measure changes to the {@link Screen},
+ * {@link Font} and {@link Level#renderTiles(Screen, int, int)} on a computer
+ * with no display.
+ * <p>
+ * Run with <code>java -cp bin:Resources:lib/jl1.0.1.jar
+ * game.utils.RenderBenchmark [frames] [map] [entities]</code>. By default 600
+ * frames of <code>/levels/fort.lvl</code> with 500 entities are rendered.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class RenderBenchmark {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "Benchmark";
+
+	/**
+	 * Frames rendered before the clock starts, so the JIT can warm up.
+	 */
+	public static final int WARMUP_FRAMES = 120;
+
+	/**
+	 * Usernames given to the fake players.
+	 */
+	private static final String[] NAMES = { "Alpha", "Bravo", "Charlie",
+		"Delta", "Echo", "Foxtrot", "Golf", "Hotel" };
+
+	/**
+	 * Lines of chat drawn every frame.
+	 */
+	private static final String[] CHAT = { "Alpha: Hello world!",
+		"Bravo joined the game.", "Charlie: Team RED captured the flag!!" };
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 *            Frames to render, map to load and amount of entities. All
+	 *            are optional.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+		final String map = args.length > 1 ? args[1] : Game.MAPS[1][1];
+		final int count = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+		final Screen screen = new Screen(Game.WIDTH, Game.HEIGHT, new Sprites(
+				"/sprites.png"));
+		final Level level = new Level(null, map);
+		populate(level, count);
+		level.applyCommands();
+
+		// The camera bounces around the whole map.
+		final int maxX = Math.max(1, (level.width << 5) - screen.width);
+		final int maxY = Math.max(1, (level.height << 5) - screen.height);
+
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			renderFrame(level, screen, i, maxX, maxY);
+		}
+
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		final long allocStart = allocatedBytes(threads);
+		final long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			renderFrame(level, screen, i, maxX, maxY);
+		}
+		final long time = System.nanoTime() - start;
+		final long allocEnd = allocatedBytes(threads);
+
+		final double seconds = time / 1000000000D;
+		final double pixels = (double) frames * screen.width * screen.height;
+		Debug.out(Type.INFO, CLASS, "Map " + map + " (" + level.width + "x"
+				+ level.height + " tiles), " + level.getEntities().size()
+				+ " entities, " + frames + " frames.");
+		Debug.out(Type.INFO, CLASS,
+				String.format("%.3f ms/frame, %.1f frames/s",
+						(time / 1000000D) / frames, frames / seconds));
+		Debug.out(Type.INFO, CLASS,
+				String.format("%.1f megapixels/s", (pixels / seconds) / 1e6));
+		if ((allocStart < 0) || (allocEnd < 0)) {
+			Debug.out(Type.INFO, CLASS,
+					"Allocation rate is not supported by this JVM.");
+		} else {
+			final long bytes = allocEnd - allocStart;
+			Debug.out(Type.INFO, CLASS, String.format(
+					"%.1f bytes/frame, %.2f MB/s allocated", (double) bytes
+							/ frames, (bytes / seconds) / (1024 * 1024)));
+		}
+	}
+
+	/**
+	 * Fills a level with a repeatable mix of every kind of {@link Entity}.
+	 *
+	 * @param level
+	 *            {@link Level} to fill.
+	 * @param count
+	 *            Amount of entities.
+	 */
+	private static void populate(Level level, int count) {
+		final Random random = new Random(9714);
+		final int w = level.width << 5;
+		final int h = level.height << 5;
+		final LevelMetadata places = level.getMetadata();
+		level.addLowestEntity(new FlagBase(level, -2, places.getFlagX("GREEN"),
+				places.getFlagY("GREEN"), "GREEN"));
+		level.addLowestEntity(new FlagBase(level, -2, places.getFlagX("RED"),
+				places.getFlagY("RED"), "RED"));
+		for (int i = 0; i < count; i++) {
+			final int x = random.nextInt(w);
+			final int y = random.nextInt(h);
+			final String team = random.nextBoolean() ? "GREEN" : "RED";
+			switch (i % 4) {
+			default:
+			case 0:
+				level.addLowestEntity(new Bullet(level, i, x, y, random
+						.nextInt(4), true));
+				break;
+			case 1:
+				level.addLowestEntity(new Landmine(level, i, "Bench", x, y,
+						true, team));
+				break;
+			case 2:
+				level.addEntity(new Explode(level, -2, x, y));
+				break;
+			case 3:
+				level.addEntity(new PlayerMP(level, i, x, y, NAMES[i
+						% NAMES.length], null, -1, team));
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Renders one frame the same way {@link Game#render()} does, minus the
+	 * window.
+	 */
+	private static void renderFrame(Level level, Screen screen, int frame,
+			int maxX, int maxY) {
+		final int camX = bounce(frame * 7, maxX);
+		final int camY = bounce(frame * 5, maxY);
+		level.renderTiles(screen, camX, camY);
+		level.renderEntities(screen);
+		for (int i = 0; i < CHAT.length; i++) {
+			Font.render(CHAT[i], screen, screen.xOffset,
+					(screen.yOffset + screen.height) - 32 - (i * 16),
+					Colors.get(-1, -1, -1, 555), 0.5);
+		}
+	}
+
+	/**
+	 * Moves back and forth between 0 and max.
+	 */
+	private static int bounce(int value, int max) {
+		final int period = max * 2;
+		final int at = value % period;
+		return at < max ? at : period - at;
+	}
+
+	/**
+	 * Gets the bytes allocated by this thread so far.
+	 *
+	 * @return Bytes, or -1 if the JVM cannot tell.
+	 */
+	private static long allocatedBytes(ThreadMXBean threads) {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,122 @@
+package game.utils;
+
+import game.Game;
+import game.entities.Bullet;
+import game.entities.Landmine;
+import game.entities.PlayerMP;
+import game.level.EntitySystems;
+import game.level.Level;
+
+import java.util.Random;
+
+/**
+ * Ticks a level full of bullets and landmines without opening a window, once
+ * with every entity ticking itself and once with the {@link EntitySystems},
+ * and reports how long a tick took each way.
+ * <p>
+ * Run with <code>java -cp bin:Resources:lib/jl1.0.1.jar
+ * game.utils.TickBenchmark [ticks] [map] [entities]</code>. By default 600
+ * ticks of <code>/levels/fort.lvl</code> with 5000 entities are run. Add
+ * <code>-Dtanks.threads=4</code> to run the phases of the
+ * {@link EntitySystems} on four threads.
+ * </p>
+ *
+ * @author AJ Walter
+ */
+public class TickBenchmark {
+
+	/**
+	 * Name of the class.
+	 */
+	public static final String CLASS = "Benchmark";
+
+	/**
+	 * Ticks run before the clock starts, so the JIT can warm up.
+	 */
+	public static final int WARMUP_TICKS = 120;
+
+	/**
+	 * Next ID given to a new bullet.
+	 */
+	private static int nextId;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 *            Ticks to run, map to load and amount of entities. All are
+	 *            optional.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		final int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+		final String map = args.length > 1 ? args[1] : Game.MAPS[1][1];
+		final int count = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+
+		for (final boolean soa : new boolean[] { false, true }) {
+			System.setProperty("tanks.soa", Boolean.toString(soa));
+			final double ms = run(map, ticks, count);
+			Debug.out(Type.INFO, CLASS, String.format(
+					"%s: %d entities, %.3f ms/tick", soa ? "Arrays" : "Objects",
+					count, ms));
+		}
+	}
+
+	/**
+	 * Helper method that times one level.
+	 *
+	 * @return Milliseconds per tick.
+	 */
+	private static double run(String map, int ticks, int count) {
+		final Level level = new Level(null, map);
+		final Random random = new Random(9714);
+		final int w = level.width << 5;
+		final int h = level.height << 5;
+		level.addEntity(new PlayerMP(level, 0, w / 2, h / 2, "Bench", null,
+				-1, "GREEN"));
+		// Immune, so nothing tries to tell the server about a hit.
+		nextId = count;
+		for (int i = 1; i < count; i++) {
+			final int x = random.nextInt(w);
+			final int y = random.nextInt(h);
+			if ((i % 4) == 0) {
+				level.addLowestEntity(new Landmine(level, i, "Bench", x, y,
+						true, random.nextBoolean() ? "GREEN" : "RED"));
+			} else {
+				level.addLowestEntity(new Bullet(level, i, x, y, random
+						.nextInt(4), true));
+			}
+		}
+
+		long time = 0;
+		for (int i = 0; i < (WARMUP_TICKS + ticks); i++) {
+			final long start = System.nanoTime();
+			level.tick();
+			if (i >= WARMUP_TICKS) {
+				time += System.nanoTime() - start;
+			}
+			// Bullets that hit a wall fly again from a new spot.
+			if ((i % 60) == 59) {
+				refill(level, random, w, h);
+			}
+		}
+		return (time / 1000000D) / ticks;
+	}
+
+	/**
+	 * Helper method that swaps dead bullets for new ones.
+	 */
+	private static void refill(Level level, Random random, int w, int h) {
+		int dead = 0;
+		for (int i = 0; i < level.getEntities().size(); i++) {
+			if (level.getEntities().get(i).isMarkedForDelete()) {
+				dead++;
+			}
+		}
+		level.sweep();
+		for (int i = 0; i < dead; i++) {
+			level.addLowestEntity(Bullet.obtain(level, nextId++,
+					random.nextInt(w), random.nextInt(h), random.nextInt(4), true));
+		}
+	}
+}
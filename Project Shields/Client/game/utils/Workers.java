@@ -0,0 +1,30 @@
+package game.utils;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Holds the {@link ForkJoinPool} shared by everything in the game that splits
+ * work over more than one thread, like the
+ * {@link game.level.EntitySystems} and level loading. The amount of threads
+ * is set with <code>-Dtanks.threads</code>. By default there is only one, and
+ * no pool is made at all.
+ *
+ * @author AJ Walter
+ */
+public class Workers {
+
+	/**
+	 * Amount of threads work may be split over.
+	 */
+	public static final int THREADS = Integer.getInteger("tanks.threads", 1);
+
+	/**
+	 * The pool, or <code>null</code> if work should be done on the thread that
+	 * asked for it.
+	 */
+	public static final ForkJoinPool POOL = THREADS > 1 ? new ForkJoinPool(
+			THREADS) : null;
+
+	private Workers() {
+	}
+}